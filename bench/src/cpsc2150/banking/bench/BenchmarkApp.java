@@ -0,0 +1,29 @@
+package cpsc2150.banking.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.*;
+
+/**
+ * This class holds main to run every benchmark in this module with the gc profiler, so each run reports
+ * throughput, average time and allocation rate. Results are written as JSON so later runs can be
+ * compared against a saved baseline.
+ * Usage: BenchmarkApp [regex] [resultFile]
+ * @author Connor Love
+ * @since 4/5/2023
+ */
+public class BenchmarkApp {
+    public static void main(String [] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "cpsc2150.banking.bench.*";
+        String result = args.length > 1 ? args[1] : "jmh-result.json";
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result)
+                .build();
+        new Runner(options).run();
+    }
+}
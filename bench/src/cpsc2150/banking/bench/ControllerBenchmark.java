@@ -0,0 +1,41 @@
+package cpsc2150.banking.bench;
+import cpsc2150.banking.controllers.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class benchmarks one full application through MortgageController.submitApplication(), with a
+ * ScriptedMortgageView answering the prompts.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ControllerBenchmark {
+
+    @Param({"450", "720", "800"})
+    public int creditScore;
+
+    private ScriptedMortgageView view;
+    private IMortgageController controller;
+
+    @Setup
+    public void setUp() {
+        view = new ScriptedMortgageView("Bench Customer", 120000, 500, creditScore, 300000, 60000, 30);
+        controller = new MortgageController(view);
+        view.setController(controller);
+    }
+
+    @Benchmark
+    public int submitApplication() {
+        controller.submitApplication();
+        return view.printed();
+    }
+}
@@ -0,0 +1,75 @@
+package cpsc2150.banking.bench;
+import cpsc2150.banking.models.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class benchmarks the model hot path: pricing a Mortgage, quoting without one, approving it,
+ * applying through a Customer, and rendering both reports. Each credit tier is its own parameter so a
+ * change that only helps one tier shows up.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MortgageBenchmark {
+
+    // One score from each credit band: very bad, bad, fair, good, great
+    @Param({"450", "550", "650", "720", "800"})
+    public int creditScore;
+
+    // 15 years gets GOODRATEADD, 30 years gets NORMALRATEADD
+    @Param({"15", "30"})
+    public int years;
+
+    public double houseCost = 300000;
+    public double downPayment = 60000;
+
+    private ICustomer customer;
+    private IMortgage mortgage;
+    private final MortgageQuote quote = new MortgageQuote();
+
+    @Setup
+    public void setUp() {
+        customer = new Customer(500, 120000, creditScore, "Bench Customer");
+        customer.applyForLoan(downPayment, houseCost, years);
+        mortgage = new Mortgage(houseCost, downPayment, years, customer);
+    }
+
+    @Benchmark
+    public IMortgage newMortgage() {
+        return new Mortgage(houseCost, downPayment, years, customer);
+    }
+
+    @Benchmark
+    public boolean quote() {
+        return Mortgage.quote(houseCost, downPayment, years, 120000, 500, creditScore, quote);
+    }
+
+    @Benchmark
+    public boolean loanApproved() {
+        return mortgage.loanApproved();
+    }
+
+    @Benchmark
+    public boolean applyForLoan() {
+        return customer.applyForLoan(downPayment, houseCost, years);
+    }
+
+    @Benchmark
+    public String customerToString() {
+        return customer.toString();
+    }
+
+    @Benchmark
+    public String mortgageToString() {
+        return mortgage.toString();
+    }
+}
@@ -0,0 +1,109 @@
+package cpsc2150.banking.bench;
+import cpsc2150.banking.controllers.*;
+import cpsc2150.banking.views.*;
+
+/**
+ * This class is an IMortgageView that answers every prompt from a fixed script instead of the console,
+ * so the controller can be driven from a benchmark. After one application it answers no to both
+ * questions, so submitApplication() returns.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ * @Defines
+ *      name, income, debt, score, cost, down, years - the answers to give
+ */
+public class ScriptedMortgageView implements IMortgageView {
+
+    private final String name;
+    private final double income;
+    private final double debt;
+    private final int score;
+    private final double cost;
+    private final double down;
+    private final int years;
+    private int printed;
+
+    /**
+     * Constructor that sets the scripted answers
+     * @post [every get method returns the matching parameter]
+     */
+    public ScriptedMortgageView(String name, double income, double debt, int score, double cost, double down, int years) {
+        this.name = name;
+        this.income = income;
+        this.debt = debt;
+        this.score = score;
+        this.cost = cost;
+        this.down = down;
+        this.years = years;
+    }
+
+    /**
+     * This method returns how many characters have been printed, so the output is not dead code.
+     * @return the total length of every message printed to the user
+     */
+    public int printed() {
+        return printed;
+    }
+
+    @Override
+    public void setController(IMortgageController c) {}
+
+    @Override
+    public double getHouseCost() {
+        return cost;
+    }
+
+    @Override
+    public double getDownPayment() {
+        return down;
+    }
+
+    @Override
+    public int getYears() {
+        return years;
+    }
+
+    @Override
+    public double getMonthlyDebt() {
+        return debt;
+    }
+
+    @Override
+    public double getYearlyIncome() {
+        return income;
+    }
+
+    @Override
+    public int getCreditScore() {
+        return score;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void printToUser(String s) {
+        printed += s.length();
+    }
+
+    @Override
+    public void displayPayment(double p) {}
+
+    @Override
+    public void displayRate(double r) {}
+
+    @Override
+    public void displayApproved(boolean a) {}
+
+    @Override
+    public boolean getAnotherMortgage() {
+        return false;
+    }
+
+    @Override
+    public boolean getAnotherCustomer() {
+        return false;
+    }
+}
@@ -0,0 +1,280 @@
+package cpsc2150.banking.bench;
+import cpsc2150.banking.controllers.*;
+import cpsc2150.banking.metrics.*;
+import cpsc2150.banking.views.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.*;
+
+/**
+ * This class is a load driver for MortgageController.submitApplication(). It replays sessions, the same
+ * answers a user would type in the StreamMortgageView format, through many controllers at once, one
+ * controller and view per session, and reports sessions per second and each prompt's latency.
+ *
+ * Sessions are read from recorded files or generated from a WorkloadGenerator, with bad answers mixed in
+ * so the controller's retry loops are exercised too. The controller returns from submitApplication() when
+ * the session says no more customers, so a session ends without exiting the JVM.
+ *
+ * Usage: SessionReplayDriver [threads] [sessions] [sessionFileOrDirectory | badAnswerRate]
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines:
+ *      sessions - the session texts, replayed round robin
+ *      threads - the number of sessions replayed at once
+ */
+public class SessionReplayDriver {
+    private static final OutputStream DISCARD = OutputStream.nullOutputStream();
+
+    private final List<byte[]> sessions;
+    private final int threads;
+
+    /**
+     * Constructor for a driver.
+     * @param sessions the session texts
+     * @param threads the number of sessions replayed at once
+     * @pre sessions is not empty AND threads > 0
+     */
+    public SessionReplayDriver(List<byte[]> sessions, int threads) {
+        this.sessions = new ArrayList<>(sessions);
+        this.threads = threads;
+    }
+
+    /**
+     * This class holds the results of one run.
+     */
+    public static final class Report {
+        private final long sessions;
+        private final long nanos;
+        private final LatencyHistogram sessionLatency;
+        private final LatencyHistogram[] promptLatency;
+        private final long[] retries;
+
+        Report(long sessions, long nanos, LatencyHistogram sessionLatency, LatencyHistogram[] promptLatency, long[] retries) {
+            this.sessions = sessions;
+            this.nanos = nanos;
+            this.sessionLatency = sessionLatency;
+            this.promptLatency = promptLatency;
+            this.retries = retries;
+        }
+
+        /**
+         * @return the number of sessions replayed
+         */
+        public long getSessions() {
+            return sessions;
+        }
+
+        /**
+         * @return sessions finished per second of wall time
+         */
+        public double getSessionsPerSecond() {
+            return sessions / Math.max(nanos / 1e9, 1e-9);
+        }
+
+        /**
+         * @return the latency of whole sessions, in nanoseconds
+         */
+        public LatencyHistogram getSessionLatency() {
+            return sessionLatency;
+        }
+
+        /**
+         * @param prompt the prompt
+         * @return the latency of the prompt's answers, in nanoseconds
+         */
+        public LatencyHistogram getPromptLatency(TimedMortgageView.Prompt prompt) {
+            return promptLatency[prompt.ordinal()];
+        }
+
+        /**
+         * @param prompt the prompt
+         * @return how many times the prompt was asked again after a bad answer
+         */
+        public long getRetries(TimedMortgageView.Prompt prompt) {
+            return retries[prompt.ordinal()];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Sessions: ").append(sessions).append('\n');
+            sb.append("Seconds: ").append(nanos / 1e9).append('\n');
+            sb.append("Sessions per second: ").append((long) getSessionsPerSecond()).append('\n');
+            sb.append(String.format("%-17s %10s %8s %10s %10s %10s %10s%n", "latency (ns)", "count", "retries", "p50", "p99", "p99.9", "max"));
+            row(sb, "session", sessionLatency, 0);
+            for (TimedMortgageView.Prompt p : TimedMortgageView.Prompt.values()) {
+                row(sb, p.name().toLowerCase(Locale.ROOT), promptLatency[p.ordinal()], retries[p.ordinal()]);
+            }
+            return sb.toString();
+        }
+
+        private static void row(StringBuilder sb, String name, LatencyHistogram h, long retries) {
+            sb.append(String.format("%-17s %10d %8d %10d %10d %10d %10d%n", name, h.getCount(), retries,
+                    h.getValueAtPercentile(50), h.getValueAtPercentile(99), h.getValueAtPercentile(99.9), h.getMax()));
+        }
+    }
+
+    /**
+     * This method replays sessions round robin until a number of them have finished.
+     *
+     * @param count the number of sessions to replay
+     * @return the results
+     * @throws InterruptedException if the run is interrupted
+     * @pre count >= 0
+     */
+    public Report run(long count) throws InterruptedException {
+        int prompts = TimedMortgageView.Prompt.values().length;
+        LatencyHistogram sessionLatency = new LatencyHistogram();
+        LatencyHistogram[] promptLatency = new LatencyHistogram[prompts];
+        for (int i = 0; i < prompts; i++) {
+            promptLatency[i] = new LatencyHistogram();
+        }
+        long[][] retries = new long[threads][prompts];
+        AtomicLong next = new AtomicLong();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            long[] mine = retries[t];
+            pool.execute(() -> {
+                try {
+                    for (long n; (n = next.getAndIncrement()) < count; ) {
+                        replay(sessions.get((int) (n % sessions.size())), promptLatency, mine, sessionLatency);
+                    }
+                } catch (RuntimeException e) {
+                    failures.add(e);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        long nanos = System.nanoTime() - start;
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("a session failed", failures.get(0));
+        }
+
+        long[] total = new long[prompts];
+        for (long[] r : retries) {
+            for (int i = 0; i < prompts; i++) {
+                total[i] += r[i];
+            }
+        }
+        return new Report(count, nanos, sessionLatency, promptLatency, total);
+    }
+
+    /**
+     * This method replays one session through a new controller.
+     */
+    private static void replay(byte[] session, LatencyHistogram[] promptLatency, long[] retries, LatencyHistogram sessionLatency) {
+        IMortgageView stream = new StreamMortgageView(new ByteArrayInputStream(session), new PrintStream(DISCARD, false));
+        TimedMortgageView view = new TimedMortgageView(stream, promptLatency, retries);
+        IMortgageController controller = new MortgageController(view);
+        view.setController(controller);
+
+        long start = System.nanoTime();
+        controller.submitApplication();
+        view.sessionEnded();
+        sessionLatency.record(System.nanoTime() - start);
+    }
+
+    /**
+     * This method reads recorded sessions: a file is one session, and a directory is every file in it.
+     *
+     * @param path a session file or a directory of them
+     * @return the sessions, in file name order
+     * @throws IOException if a session cannot be read
+     */
+    public static List<byte[]> load(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return Collections.singletonList(Files.readAllBytes(path));
+        }
+        List<byte[]> sessions = new ArrayList<>();
+        try (Stream<Path> files = Files.list(path)) {
+            for (Path file : files.filter(Files::isRegularFile).sorted().collect(Collectors.toList())) {
+                sessions.add(Files.readAllBytes(file));
+            }
+        }
+        return sessions;
+    }
+
+    /**
+     * This method generates sessions from a workload's applications. Each session has one or two
+     * customers with one to three mortgages each. Before each answer, a bad one for the same prompt is
+     * added with probability badAnswerRate, and again, so some prompts are retried more than once.
+     *
+     * @param workload where the applications come from
+     * @param count the number of sessions
+     * @param badAnswerRate the chance of a bad answer before each answer
+     * @param seed the seed for the session shapes and bad answers
+     * @return the sessions
+     * @pre count >= 0 AND 0 <= badAnswerRate < 1
+     */
+    public static List<byte[]> generate(WorkloadGenerator workload, int count, double badAnswerRate, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<byte[]> sessions = new ArrayList<>(count);
+        long row = 0;
+        for (int s = 0; s < count; s++) {
+            StringBuilder sb = new StringBuilder(256);
+            int customers = 1 + random.nextInt(2);
+            for (int c = 0; c < customers; c++) {
+                ApplicationRequest first;
+                //Only valid rows give a valid answer to every prompt
+                while (!UnderwritingEngine.validate(first = workload.request(row++)).isEmpty()) {
+                    //Skips it
+                }
+                sb.append(first.getName()).append('\n');
+                answer(sb, random, badAnswerRate, Double.toString(first.getYearlyIncome()), "-1");
+                answer(sb, random, badAnswerRate, Double.toString(first.getMonthlyDebt()), "-5");
+                answer(sb, random, badAnswerRate, Integer.toString(first.getCreditScore()), "900");
+
+                int mortgages = 1 + random.nextInt(3);
+                for (int m = 0; m < mortgages; m++) {
+                    ApplicationRequest r = m == 0 ? first : workload.request(row++);
+                    if (!UnderwritingEngine.validate(r).isEmpty()) {
+                        r = first;
+                    }
+                    answer(sb, random, badAnswerRate, Double.toString(r.getHouseCost()), "-100");
+                    answer(sb, random, badAnswerRate, Double.toString(r.getDownPayment()),
+                            Double.toString(r.getHouseCost() + 1));
+                    answer(sb, random, badAnswerRate, Integer.toString(r.getYears()), "-30");
+                    sb.append(m < mortgages - 1 ? "Y\n" : "N\n");
+                }
+                sb.append(c < customers - 1 ? "Y\n" : "N\n");
+            }
+            sessions.add(sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return sessions;
+    }
+
+    private static void answer(StringBuilder sb, SplittableRandom random, double badAnswerRate, String good, String bad) {
+        while (random.nextDouble() < badAnswerRate) {
+            sb.append(bad).append('\n');
+        }
+        sb.append(good).append('\n');
+    }
+
+    public static void main(String [] args) throws IOException, InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        long count = args.length > 1 ? Long.parseLong(args[1]) : 1000000;
+        List<byte[]> sessions;
+        if (args.length > 2 && Files.exists(Paths.get(args[2]))) {
+            sessions = load(Paths.get(args[2]));
+        } else {
+            double badAnswerRate = args.length > 2 ? Double.parseDouble(args[2]) : 0.1;
+            sessions = generate(WorkloadGenerator.defaults(0), 10000, badAnswerRate, 0);
+        }
+
+        SessionReplayDriver driver = new SessionReplayDriver(sessions, threads);
+        //One short run first so the measured run is not timing the JIT
+        driver.run(Math.min(count, 100000));
+        System.out.print(driver.run(count));
+    }
+}
@@ -0,0 +1,190 @@
+package cpsc2150.banking.bench;
+import cpsc2150.banking.controllers.*;
+import cpsc2150.banking.metrics.*;
+import cpsc2150.banking.views.*;
+
+/**
+ * This class is an IMortgageView that wraps another view and times the controller between prompts.
+ * Each answer's latency is the time from handing the answer to the controller until the controller asks
+ * for the next one, or until submitApplication() returns for the last answer. That is the work the
+ * controller does with the answer: checking it, printing the error and prompt again when it is bad, and
+ * pricing and printing the reports after the last one. Time spent in the wrapped view is not counted: the
+ * clock is paused while it reads an answer and while it prints or displays what the controller sends it.
+ *
+ * An answer to the same prompt as the one before was asked for again, so it counts as a retry of that
+ * prompt.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ * @Defines
+ *      view - the view answering the prompts
+ *      latencies - one histogram per Prompt, shared by every view in a run
+ */
+public class TimedMortgageView implements IMortgageView {
+
+    /**
+     * The questions the controller asks.
+     */
+    public enum Prompt {
+        NAME, INCOME, DEBT, CREDIT_SCORE, HOUSE_COST, DOWN_PAYMENT, YEARS, ANOTHER_MORTGAGE, ANOTHER_CUSTOMER
+    }
+
+    private final IMortgageView view;
+    private final LatencyHistogram[] latencies;
+    private final long[] retries;
+    private Prompt last;
+    private long answered;
+
+    /**
+     * Constructor that wraps a view.
+     *
+     * @param view the view answering the prompts
+     * @param latencies one histogram per Prompt, indexed by ordinal
+     * @param retries one counter per Prompt, indexed by ordinal, added to by this thread only
+     * @pre view != null AND latencies.length = retries.length = Prompt.values().length
+     */
+    public TimedMortgageView(IMortgageView view, LatencyHistogram[] latencies, long[] retries) {
+        this.view = view;
+        this.latencies = latencies;
+        this.retries = retries;
+    }
+
+    /**
+     * This method records the latency of the last answer. Call it once submitApplication() returns.
+     */
+    public void sessionEnded() {
+        if (last != null) {
+            latencies[last.ordinal()].record(System.nanoTime() - answered);
+            last = null;
+        }
+    }
+
+    private void asking(Prompt prompt) {
+        long now = System.nanoTime();
+        if (last != null) {
+            latencies[last.ordinal()].record(now - answered);
+            if (last == prompt) {
+                retries[prompt.ordinal()]++;
+            }
+        }
+        last = prompt;
+    }
+
+    private void answering() {
+        answered = System.nanoTime();
+    }
+
+    /**
+     * This method leaves the time since viewStart, spent printing in the wrapped view, out of the current answer.
+     */
+    private void shown(long viewStart) {
+        if (last != null) {
+            answered += System.nanoTime() - viewStart;
+        }
+    }
+
+    @Override
+    public void setController(IMortgageController c) {
+        view.setController(c);
+    }
+
+    @Override
+    public double getHouseCost() {
+        asking(Prompt.HOUSE_COST);
+        double answer = view.getHouseCost();
+        answering();
+        return answer;
+    }
+
+    @Override
+    public double getDownPayment() {
+        asking(Prompt.DOWN_PAYMENT);
+        double answer = view.getDownPayment();
+        answering();
+        return answer;
+    }
+
+    @Override
+    public int getYears() {
+        asking(Prompt.YEARS);
+        int answer = view.getYears();
+        answering();
+        return answer;
+    }
+
+    @Override
+    public double getMonthlyDebt() {
+        asking(Prompt.DEBT);
+        double answer = view.getMonthlyDebt();
+        answering();
+        return answer;
+    }
+
+    @Override
+    public double getYearlyIncome() {
+        asking(Prompt.INCOME);
+        double answer = view.getYearlyIncome();
+        answering();
+        return answer;
+    }
+
+    @Override
+    public int getCreditScore() {
+        asking(Prompt.CREDIT_SCORE);
+        int answer = view.getCreditScore();
+        answering();
+        return answer;
+    }
+
+    @Override
+    public String getName() {
+        asking(Prompt.NAME);
+        String answer = view.getName();
+        answering();
+        return answer;
+    }
+
+    @Override
+    public void printToUser(String s) {
+        long start = System.nanoTime();
+        view.printToUser(s);
+        shown(start);
+    }
+
+    @Override
+    public void displayPayment(double p) {
+        long start = System.nanoTime();
+        view.displayPayment(p);
+        shown(start);
+    }
+
+    @Override
+    public void displayRate(double r) {
+        long start = System.nanoTime();
+        view.displayRate(r);
+        shown(start);
+    }
+
+    @Override
+    public void displayApproved(boolean a) {
+        long start = System.nanoTime();
+        view.displayApproved(a);
+        shown(start);
+    }
+
+    @Override
+    public boolean getAnotherMortgage() {
+        asking(Prompt.ANOTHER_MORTGAGE);
+        boolean answer = view.getAnotherMortgage();
+        answering();
+        return answer;
+    }
+
+    @Override
+    public boolean getAnotherCustomer() {
+        asking(Prompt.ANOTHER_CUSTOMER);
+        boolean answer = view.getAnotherCustomer();
+        answering();
+        return answer;
+    }
+}
@@ -0,0 +1,30 @@
+package cpsc2150.banking;
+
+import cpsc2150.banking.controllers.*;
+
+import java.io.*;
+
+/**
+ * This class holds main to run the program over a file of applications instead of the console.
+ * Usage: BatchMortgageApp inputFile outputFile [threads]
+ * @author Connor Love
+ * @since 4/5/2023
+ */
+public class BatchMortgageApp {
+    public static void main(String [] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BatchMortgageApp inputFile outputFile [threads]");
+            System.exit(1);
+        }
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        BatchUnderwriter underwriter = new BatchUnderwriter(threads, BatchUnderwriter.DEFAULT_CHUNK_SIZE);
+
+        long start = System.nanoTime();
+        long rows = underwriter.run(new File(args[0]), new File(args[1]));
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println("Rows: " + rows);
+        System.out.println("Seconds: " + seconds);
+        System.out.println("Rows per second: " + (long) (rows / Math.max(seconds, 1e-9)));
+    }
+}
@@ -3,16 +3,33 @@ package cpsc2150.banking;
 import cpsc2150.banking.controllers.*;
 import cpsc2150.banking.views.*;
 
+import java.io.*;
+
 /**
  * This class holds main to run the program.
+ * Run with --script to replay answers piped into stdin, or --script file to replay a recorded session,
+ * instead of prompting interactively.
  * @author Connor Love
  * @since 4/5/2023
  */
 public class MortgageApp {
-    public static void main(String [] args) {
-        IMortgageView view = new MortgageView();
+    public static void main(String [] args) throws IOException {
+        IMortgageView view;
+        PrintStream out = System.out;
+        if (args.length > 0 && args[0].equals("--script")) {
+            InputStream in = args.length > 1 ? new FileInputStream(args[1]) : new FileInputStream(FileDescriptor.in);
+            //Every prompt and report goes through the view, so it gets one buffered stream of its own
+            out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16), false);
+            view = new StreamMortgageView(in, out);
+        } else {
+            view = new MortgageView();
+        }
         IMortgageController controller = new MortgageController(view);
         view.setController(controller);
-        controller.submitApplication();
+        try {
+            controller.submitApplication();
+        } finally {
+            out.flush();
+        }
     }
 }
@@ -0,0 +1,33 @@
+package cpsc2150.banking;
+
+import cpsc2150.banking.controllers.*;
+import cpsc2150.banking.metrics.*;
+
+import javax.management.JMException;
+
+import java.io.*;
+import java.nio.file.*;
+
+/**
+ * This class holds main to run the underwriting service on the loopback interface.
+ * Usage: MortgageServerApp [port] [workers] [queueLimit] [auditLogDirectory]
+ * @author Connor Love
+ * @since 4/5/2023
+ */
+public class MortgageServerApp {
+    public static void main(String [] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors() * 4;
+        int queueLimit = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+
+        DecisionLog log = args.length > 3 ? new DecisionLog(Paths.get(args[3])) : null;
+
+        MortgageServer server = new MortgageServer(port, workers, queueLimit, 4096, new UnderwritingEngine(new QuoteCache(), log));
+        server.start();
+        System.out.println("Listening on 127.0.0.1:" + server.getPort() + " with " + workers + " workers");
+        //With -Dbanking.metrics=true the stage latencies are read over JMX, so say if they could not be published
+        for (JMException e : UnderwritingMetrics.getPublishFailures()) {
+            System.err.println("Could not publish stage metrics: " + e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package cpsc2150.banking;
+
+import cpsc2150.banking.controllers.*;
+
+import java.io.*;
+
+/**
+ * This class holds main for one worker process of a sharded batch run. ShardCoordinator starts it;
+ * it is not meant to be run by hand.
+ * Usage: ShardWorkerApp coordinatorPort threads
+ * @author Connor Love
+ * @since 4/5/2023
+ */
+public class ShardWorkerApp {
+    public static void main(String [] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ShardWorkerApp coordinatorPort threads");
+            System.exit(1);
+        }
+        ShardWorker.run(Integer.parseInt(args[0]), Integer.parseInt(args[1]));
+    }
+}
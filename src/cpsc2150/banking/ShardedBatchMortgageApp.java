@@ -0,0 +1,35 @@
+package cpsc2150.banking;
+
+import cpsc2150.banking.controllers.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * This class holds main to run the program over a file of applications split across worker processes.
+ * Any arguments after the first four are passed to each worker's java command, such as -Xmx2g.
+ * Usage: ShardedBatchMortgageApp inputFile outputFile [workers] [threadsPerWorker] [workerJvmOption ...]
+ * @author Connor Love
+ * @since 4/5/2023
+ */
+public class ShardedBatchMortgageApp {
+    public static void main(String [] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ShardedBatchMortgageApp inputFile outputFile [workers] [threadsPerWorker] [workerJvmOption ...]");
+            System.exit(1);
+        }
+        int workers = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        int threads = args.length > 3 ? Integer.parseInt(args[3])
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / workers);
+        List<String> jvmOptions = args.length > 4 ? Arrays.asList(args).subList(4, args.length) : Collections.emptyList();
+        ShardCoordinator coordinator = new ShardCoordinator(workers, threads, ShardCoordinator.DEFAULT_SHARD_SIZE, jvmOptions);
+
+        long start = System.nanoTime();
+        long rows = coordinator.run(new File(args[0]), new File(args[1]));
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println("Rows: " + rows);
+        System.out.println("Seconds: " + seconds);
+        System.out.println("Rows per second: " + (long) (rows / Math.max(seconds, 1e-9)));
+    }
+}
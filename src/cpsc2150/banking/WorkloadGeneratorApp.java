@@ -0,0 +1,40 @@
+package cpsc2150.banking;
+
+import cpsc2150.banking.controllers.*;
+
+import java.io.*;
+import java.nio.file.*;
+
+/**
+ * This class holds main to write a file of synthetic applications for load tests. The format is taken
+ * from the output file's extension: .bin for binary, anything else for CSV. Distributions and the seed
+ * come from the optional properties file; see WorkloadGenerator.fromProperties.
+ * Usage: WorkloadGeneratorApp outputFile rows [threads] [workloadProperties]
+ * @author Connor Love
+ * @since 4/5/2023
+ */
+public class WorkloadGeneratorApp {
+    public static void main(String [] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: WorkloadGeneratorApp outputFile rows [threads] [workloadProperties]");
+            System.exit(1);
+        }
+        Path output = Paths.get(args[0]);
+        long rows = Long.parseLong(args[1]);
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        WorkloadGenerator generator = args.length > 3 ? WorkloadGenerator.load(Paths.get(args[3])) : WorkloadGenerator.defaults(0);
+
+        long start = System.nanoTime();
+        if (output.toString().endsWith(".bin")) {
+            generator.writeBinary(output, rows, threads);
+        } else {
+            generator.writeCsv(output, rows, threads);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println("Rows: " + rows);
+        System.out.println("Bytes: " + Files.size(output));
+        System.out.println("Seconds: " + seconds);
+        System.out.println("Megabytes per second: " + (long) (Files.size(output) / 1e6 / Math.max(seconds, 1e-9)));
+    }
+}
@@ -0,0 +1,93 @@
+package cpsc2150.banking.controllers;
+
+/**
+ * This class holds one mortgage application: everything MortgageController asks the user for.
+ * It never changes once created, so it can be shared between threads freely.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines:
+ *      name, yearlyIncome, monthlyDebt, creditScore, houseCost, downPayment, years - the answers given
+ */
+public final class ApplicationRequest {
+    private final String name;
+    private final double yearlyIncome;
+    private final double monthlyDebt;
+    private final int creditScore;
+    private final double houseCost;
+    private final double downPayment;
+    private final int years;
+
+    /**
+     * Constructor that records an application. Nothing is checked here; UnderwritingEngine does that.
+     *
+     * @param name the customer's name
+     * @param yearlyIncome the customer's yearly income
+     * @param monthlyDebt the customer's monthly debt payments
+     * @param creditScore the customer's credit score
+     * @param houseCost the cost of the house
+     * @param downPayment the down payment
+     * @param years the number of years to repay the loan
+     * @post [every getter returns the matching parameter]
+     */
+    public ApplicationRequest(String name, double yearlyIncome, double monthlyDebt, int creditScore,
+                              double houseCost, double downPayment, int years) {
+        this.name = name;
+        this.yearlyIncome = yearlyIncome;
+        this.monthlyDebt = monthlyDebt;
+        this.creditScore = creditScore;
+        this.houseCost = houseCost;
+        this.downPayment = downPayment;
+        this.years = years;
+    }
+
+    /**
+     * @return the customer's name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the customer's yearly income
+     */
+    public double getYearlyIncome() {
+        return yearlyIncome;
+    }
+
+    /**
+     * @return the customer's monthly debt payments
+     */
+    public double getMonthlyDebt() {
+        return monthlyDebt;
+    }
+
+    /**
+     * @return the customer's credit score
+     */
+    public int getCreditScore() {
+        return creditScore;
+    }
+
+    /**
+     * @return the cost of the house
+     */
+    public double getHouseCost() {
+        return houseCost;
+    }
+
+    /**
+     * @return the down payment
+     */
+    public double getDownPayment() {
+        return downPayment;
+    }
+
+    /**
+     * @return the number of years to repay the loan
+     */
+    public int getYears() {
+        return years;
+    }
+}
@@ -0,0 +1,252 @@
+package cpsc2150.banking.controllers;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This class underwrites a whole file of mortgage applications without a view. Each line of the input
+ * is one application, and each line of the output is the decision for it, in the same order.
+ * Lines are read in chunks, the chunks are priced in parallel, and only a fixed number of chunks are
+ * ever held in memory at once, so the size of the input file does not matter.
+ *
+ * Input line:  name,yearlyIncome,monthlyDebt,creditScore,houseCost,downPayment,years
+ * Output line: name,approved,rate,payment   (or name,invalid,message)
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines:
+ *      threads - the number of worker threads pricing chunks
+ *      chunkSize - the number of lines in one chunk
+ *      maxInFlight - the most chunks that can be read but not yet written
+ */
+public class BatchUnderwriter {
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+    public static final String HEADER = "name,approved,rate,payment";
+    private static final UnderwritingEngine ENGINE = new UnderwritingEngine();
+
+    private final int threads;
+    private final int chunkSize;
+    private final int maxInFlight;
+
+    /**
+     * Constructor that sets how the batch is split up
+     * @pre threads > 0 AND chunkSize > 0
+     * @param threads the number of worker threads to use
+     * @param chunkSize the number of lines priced together by one worker
+     * @post threads = threads AND chunkSize = chunkSize AND maxInFlight = 2 * threads
+     */
+    public BatchUnderwriter(int threads, int chunkSize) {
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+        this.maxInFlight = threads * 2;
+    }
+
+    /**
+     * Constructor that uses one worker per core and the default chunk size
+     * @post threads = [number of available processors] AND chunkSize = DEFAULT_CHUNK_SIZE
+     */
+    public BatchUnderwriter() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * This method underwrites every application read from in and writes a decision line for each one to out.
+     * A first line that isHeader() is skipped.
+     *
+     * @param in the application lines
+     * @param out where the decision lines are written
+     * @return the number of rows that were processed
+     * @throws IOException if reading or writing fails
+     * @pre in != null AND out != null
+     * @post [out holds HEADER followed by one decision line per application, in input order]
+     */
+    public long run(BufferedReader in, Writer out) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        //Chunks that have been handed to the pool, oldest first, so the output keeps the input order
+        ArrayDeque<Future<String>> inFlight = new ArrayDeque<>();
+        long rows = 0;
+
+        try {
+            out.write(HEADER);
+            out.write('\n');
+
+            String line = in.readLine();
+            //Skips the header if there is one
+            if (line != null && isHeader(line)) {
+                line = in.readLine();
+            }
+
+            while (line != null) {
+                //Reads the next chunk of lines
+                final List<String> chunk = new ArrayList<>(chunkSize);
+                while (line != null && chunk.size() < chunkSize) {
+                    if (!line.isEmpty()) {
+                        chunk.add(line);
+                    }
+                    line = in.readLine();
+                }
+                rows += chunk.size();
+                inFlight.addLast(pool.submit(() -> underwriteChunk(chunk)));
+
+                //Once too many chunks are waiting, writes the oldest one before reading more
+                while (inFlight.size() >= maxInFlight) {
+                    out.write(await(inFlight.removeFirst()));
+                }
+            }
+
+            //Writes whatever chunks are left
+            while (!inFlight.isEmpty()) {
+                out.write(await(inFlight.removeFirst()));
+            }
+            out.flush();
+        } finally {
+            pool.shutdownNow();
+        }
+        return rows;
+    }
+
+    /**
+     * This method underwrites one application file into one decision file.
+     *
+     * @param input the application file
+     * @param output the decision file to create or overwrite
+     * @return the number of rows that were processed
+     * @throws IOException if reading or writing fails
+     * @pre input exists
+     * @post [output holds a decision line for every line in input]
+     */
+    public long run(File input, File output) throws IOException {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(input), StandardCharsets.UTF_8), 1 << 16);
+             Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8), 1 << 16)) {
+            return run(in, out);
+        }
+    }
+
+    /**
+     * This method underwrites each line in a chunk and joins the decisions together.
+     *
+     * @param chunk the application lines
+     * @return the decision lines, each ending in a newline
+     * @post [one decision line per line in chunk]
+     */
+    static String underwriteChunk(List<String> chunk) {
+        StringBuilder sb = new StringBuilder(chunk.size() * 48);
+        for (String line : chunk) {
+            underwriteLine(line, sb);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * This method underwrites one application line with the UnderwritingEngine.
+     *
+     * @param line the application line
+     * @param sb where the decision line is appended
+     * @post [sb has the decision for line appended to it, ending in a newline]
+     */
+    static void underwriteLine(String line, StringBuilder sb) {
+        String[] f = split(line);
+        String name = f[0].trim();
+
+        if (f.length != 7) {
+            sb.append(name).append(",invalid,expected 7 fields\n");
+            return;
+        }
+
+        double yearlyIncome;
+        double monthlyDebt;
+        int creditScore;
+        double houseCost;
+        double downPayment;
+        int years;
+        try {
+            yearlyIncome = Double.parseDouble(f[1].trim());
+            monthlyDebt = Double.parseDouble(f[2].trim());
+            creditScore = Integer.parseInt(f[3].trim());
+            houseCost = Double.parseDouble(f[4].trim());
+            downPayment = Double.parseDouble(f[5].trim());
+            years = Integer.parseInt(f[6].trim());
+        } catch (NumberFormatException e) {
+            sb.append(name).append(",invalid,not a number\n");
+            return;
+        }
+
+        Decision decision = ENGINE.underwrite(new ApplicationRequest(name, yearlyIncome, monthlyDebt, creditScore, houseCost, downPayment, years));
+        if (!decision.isValid()) {
+            sb.append(name).append(",invalid,").append(decision.getErrors().get(0)).append('\n');
+            return;
+        }
+        sb.append(name).append(',')
+                .append(decision.isApproved()).append(',')
+                .append(decision.getRate()).append(',')
+                .append(decision.getPayment()).append('\n');
+    }
+
+    /**
+     * This method checks if a line is the column names rather than an application: its first field is
+     * "name" and the income field that follows is not a number. An applicant whose name merely starts with
+     * "name" is not a header.
+     *
+     * @param line the first line of the input
+     * @return true iff line is a header
+     */
+    static boolean isHeader(String line) {
+        String[] f = split(line);
+        if (!f[0].trim().equalsIgnoreCase("name")) {
+            return false;
+        }
+        if (f.length < 2) {
+            return true;
+        }
+        try {
+            Double.parseDouble(f[1].trim());
+            return false;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * This method splits a line on commas without using a regular expression.
+     *
+     * @param line the line to split
+     * @return the fields of the line
+     * @post [split has one more entry than the number of commas in line]
+     */
+    static String[] split(String line) {
+        String[] fields = new String[7];
+        int count = 0;
+        int start = 0;
+        for (int i = 0; i <= line.length(); i++) {
+            if (i == line.length() || line.charAt(i) == ',') {
+                if (count == fields.length) {
+                    fields = Arrays.copyOf(fields, count * 2);
+                }
+                fields[count++] = line.substring(start, i);
+                start = i + 1;
+            }
+        }
+        return count == fields.length ? fields : Arrays.copyOf(fields, count);
+    }
+
+    /**
+     * This method waits for a chunk to finish.
+     *
+     * @param f the chunk being priced
+     * @return the decision lines for the chunk
+     * @throws IOException if the worker failed or the wait was interrupted
+     */
+    private static String await(Future<String> f) throws IOException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("batch interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("batch chunk failed", e.getCause());
+        }
+    }
+}
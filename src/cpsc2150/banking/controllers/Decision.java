@@ -0,0 +1,118 @@
+package cpsc2150.banking.controllers;
+
+import java.util.*;
+
+/**
+ * This class holds the outcome of underwriting one ApplicationRequest. An application that fails
+ * validation has its error messages and no pricing; a valid one has its pricing and no errors.
+ * It never changes once created, so it can be shared between threads freely.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines:
+ *      approved - whether the loan was approved
+ *      rate - the APR, as returned by IMortgage.getRate()
+ *      payment - the monthly payment
+ *      debtToIncome - the debt to income ratio including the payment
+ *      principal - the amount of the loan
+ *      years - the term of the loan
+ *      errors - the validation messages, empty if the application was valid
+ *
+ * @invariant errors is empty iff [the application was valid] AND (approved => errors is empty)
+ */
+public final class Decision {
+    private final boolean approved;
+    private final double rate;
+    private final double payment;
+    private final double debtToIncome;
+    private final double principal;
+    private final int years;
+    private final List<String> errors;
+
+    /**
+     * Constructor for an application that was priced.
+     * @post errors is empty AND [every getter returns the matching parameter]
+     */
+    public Decision(boolean approved, double rate, double payment, double debtToIncome, double principal, int years) {
+        this.approved = approved;
+        this.rate = rate;
+        this.payment = payment;
+        this.debtToIncome = debtToIncome;
+        this.principal = principal;
+        this.years = years;
+        this.errors = Collections.emptyList();
+    }
+
+    /**
+     * Constructor for an application that failed validation.
+     * @param errors the validation messages
+     * @pre errors is not empty
+     * @post approved = false AND [errors is an unmodifiable copy of the parameter]
+     */
+    public Decision(List<String> errors) {
+        this.approved = false;
+        this.rate = Double.NaN;
+        this.payment = Double.NaN;
+        this.debtToIncome = Double.NaN;
+        this.principal = Double.NaN;
+        this.years = 0;
+        this.errors = Collections.unmodifiableList(new ArrayList<>(errors));
+    }
+
+    /**
+     * @return true if the application passed validation
+     */
+    public boolean isValid() {
+        return errors.isEmpty();
+    }
+
+    /**
+     * @return true if the loan was approved
+     */
+    public boolean isApproved() {
+        return approved;
+    }
+
+    /**
+     * @return the APR, or NaN if the application was not valid
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * @return the monthly payment, or NaN if the application was not valid
+     */
+    public double getPayment() {
+        return payment;
+    }
+
+    /**
+     * @return the debt to income ratio including the payment, or NaN if the application was not valid
+     */
+    public double getDebtToIncome() {
+        return debtToIncome;
+    }
+
+    /**
+     * @return the amount of the loan, or NaN if the application was not valid
+     */
+    public double getPrincipal() {
+        return principal;
+    }
+
+    /**
+     * @return the term of the loan in years, or 0 if the application was not valid
+     */
+    public int getYears() {
+        return years;
+    }
+
+    /**
+     * @return the validation messages, empty if the application was valid
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,403 @@
+package cpsc2150.banking.controllers;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32C;
+
+/**
+ * This class is a durable audit trail of decisions: an append-only log of LoggedDecision records in a
+ * directory of segment files. Each segment is named for the sequence number of its first record, and a
+ * new one is started once the current one reaches the segment size. Every record is framed as
+ *
+ *      int     length of the record
+ *      long    sequence number
+ *      bytes   the record, see LoggedDecision
+ *      int     CRC32C of the sequence number and the record
+ *
+ * Appends from any number of threads are handed to one writer thread. It takes every record waiting at
+ * once, writes them with one write and makes them durable with one fsync, then completes each
+ * record's future. More waiting threads means bigger batches, so an fsync is not paid per record.
+ *
+ * When a log is opened again, a record cut short by a crash at the end of the last segment is dropped
+ * and appending carries on after the last whole record. DecisionLogReader reads a log back.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines:
+ *      directory - where the segment files are
+ *      segmentBytes - the size at which a new segment is started
+ *      NextSequence: Z - the sequence number of the next record appended
+ */
+public final class DecisionLog implements Closeable {
+    public static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+    public static final int DEFAULT_QUEUE_LIMIT = 65536;
+    static final int FRAME_BYTES = 4 + 8 + 4;
+    static final String SUFFIX = ".log";
+
+    private static final int BATCH_BYTES = 1 << 20;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final BlockingQueue<Pending> queue;
+    private final Thread writer;
+    private final LongAdder records = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    //Appends hold the read lock while queueing, so none can slip in behind the close marker
+    private final ReentrantReadWriteLock closing = new ReentrantReadWriteLock();
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    //Only the writer thread touches these once it has started
+    private FileChannel channel;
+    private long segmentSize;
+    private long nextSequence;
+    private ByteBuffer batch = ByteBuffer.allocateDirect(BATCH_BYTES);
+    private final ByteBuffer sequenceBytes = ByteBuffer.allocate(8);
+    private final CRC32C crc = new CRC32C();
+
+    /**
+     * This class is a record waiting for the writer.
+     */
+    private static final class Pending {
+        final byte[] record;
+        final CompletableFuture<Long> done = new CompletableFuture<>();
+
+        Pending(byte[] record) {
+            this.record = record;
+        }
+    }
+
+    private static final Pending CLOSE = new Pending(new byte[0]);
+
+    /**
+     * Constructor that opens a log with the default segment size and queue limit, creating it if needed.
+     *
+     * @param directory where the segment files are
+     * @throws IOException if the directory cannot be created or the last segment cannot be recovered
+     */
+    public DecisionLog(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_QUEUE_LIMIT);
+    }
+
+    /**
+     * Constructor that opens a log, creating it if needed.
+     *
+     * @param directory where the segment files are
+     * @param segmentBytes the size at which a new segment is started
+     * @param queueLimit the most records waiting for the writer before append blocks
+     * @throws IOException if the directory cannot be created or the last segment cannot be recovered
+     * @pre segmentBytes > 0 AND queueLimit > 0
+     * @post [the log is open and NextSequence follows the last whole record]
+     */
+    public DecisionLog(Path directory, long segmentBytes, int queueLimit) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.queue = new ArrayBlockingQueue<>(queueLimit);
+        Files.createDirectories(directory);
+        recover();
+        writer = new Thread(this::writeLoop, "decision-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * This method appends a decision. It returns once the record is queued; the future completes once it
+     * is durable.
+     *
+     * @param request the application
+     * @param decision the decision made on it
+     * @return a future for the record's sequence number, completed exceptionally if it could not be written
+     * @throws InterruptedException if interrupted while waiting for room in the queue
+     * @pre request != null AND decision != null
+     */
+    public CompletableFuture<Long> append(ApplicationRequest request, Decision decision) throws InterruptedException {
+        Pending pending = new Pending(LoggedDecision.encode(System.currentTimeMillis(), request, decision));
+        closing.readLock().lockInterruptibly();
+        try {
+            IOException failed = failure;
+            if (closed || failed != null) {
+                pending.done.completeExceptionally(failed != null ? failed : new IOException("decision log is closed"));
+                return pending.done;
+            }
+            queue.put(pending);
+        } finally {
+            closing.readLock().unlock();
+        }
+        return pending.done;
+    }
+
+    /**
+     * This method appends a decision and waits until it is durable.
+     *
+     * @param request the application
+     * @param decision the decision made on it
+     * @return the record's sequence number
+     * @throws IOException if the record could not be written
+     * @throws InterruptedException if interrupted while waiting
+     * @pre request != null AND decision != null
+     */
+    public long appendAndWait(ApplicationRequest request, Decision decision) throws IOException, InterruptedException {
+        try {
+            return append(request, decision).get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * @return the directory the segment files are in
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the number of records made durable since the log was opened
+     */
+    public long getRecords() {
+        return records.sum();
+    }
+
+    /**
+     * @return the number of fsyncs since the log was opened; records / commits is the mean batch size
+     */
+    public long getCommits() {
+        return commits.sum();
+    }
+
+    /**
+     * This method stops taking appends, waits for every queued record to be durable, and closes the log.
+     * @throws IOException if the last records could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        boolean interrupted = false;
+        closing.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            //A writer that failed has stopped draining, so only wait for room while it is running
+            while (writer.isAlive()) {
+                try {
+                    if (queue.offer(CLOSE, 10, TimeUnit.MILLISECONDS)) {
+                        break;
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            closing.writeLock().unlock();
+        }
+        while (true) {
+            try {
+                writer.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * This method drains the queue in batches until the log is closed.
+     */
+    private void writeLoop() {
+        List<Pending> taken = new ArrayList<>();
+        boolean stop = false;
+        try {
+            while (!stop) {
+                taken.add(queue.take());
+                queue.drainTo(taken);
+                if (taken.get(taken.size() - 1) == CLOSE) {
+                    stop = true;
+                    taken.remove(taken.size() - 1);
+                }
+                if (!taken.isEmpty()) {
+                    commit(taken);
+                }
+                taken.clear();
+            }
+        } catch (InterruptedException e) {
+            failure = new InterruptedIOException("decision log writer interrupted");
+        } catch (IOException e) {
+            failure = e;
+        }
+        //Anything left can no longer be written
+        IOException failed = failure != null ? failure : new IOException("decision log is closed");
+        for (Pending p : taken) {
+            p.done.completeExceptionally(failed);
+        }
+        //Appends blocked on a full queue hold the read lock, so keep draining until the write lock is free
+        while (!closing.writeLock().tryLock()) {
+            fail(failed);
+            Thread.yield();
+        }
+        try {
+            fail(failed);
+        } finally {
+            closing.writeLock().unlock();
+        }
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * This method fails every record still queued.
+     */
+    private void fail(IOException failed) {
+        for (Pending p; (p = queue.poll()) != null; ) {
+            if (p != CLOSE) {
+                p.done.completeExceptionally(failed);
+            }
+        }
+    }
+
+    /**
+     * This method writes one batch with as few writes as the segment size allows, and one fsync per segment.
+     */
+    private void commit(List<Pending> taken) throws IOException {
+        long[] sequences = new long[taken.size()];
+        batch.clear();
+        for (int i = 0; i < taken.size(); i++) {
+            byte[] record = taken.get(i).record;
+            int frame = FRAME_BYTES + record.length;
+            if (segmentSize > 0 && segmentSize + batch.position() + frame > segmentBytes) {
+                flush();
+                channel.force(false);
+                commits.increment();
+                roll();
+            }
+            if (batch.remaining() < frame) {
+                flush();
+                if (batch.capacity() < frame) {
+                    batch = ByteBuffer.allocateDirect(frame);
+                }
+            }
+            long sequence = nextSequence++;
+            crc.reset();
+            sequenceBytes.clear();
+            crc.update(sequenceBytes.putLong(0, sequence));
+            crc.update(record);
+            batch.putInt(record.length).putLong(sequence).put(record).putInt((int) crc.getValue());
+            sequences[i] = sequence;
+        }
+        flush();
+        channel.force(false);
+        commits.increment();
+        records.add(taken.size());
+        for (int i = 0; i < taken.size(); i++) {
+            taken.get(i).done.complete(sequences[i]);
+        }
+    }
+
+    /**
+     * This method writes whatever is in the batch buffer to the current segment.
+     */
+    private void flush() throws IOException {
+        batch.flip();
+        while (batch.hasRemaining()) {
+            segmentSize += channel.write(batch);
+        }
+        batch.clear();
+    }
+
+    /**
+     * This method starts a new segment named for the next sequence number.
+     */
+    private void roll() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        channel = FileChannel.open(segment(directory, nextSequence),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentSize = 0;
+    }
+
+    /**
+     * This method finds the end of the last segment, dropping a record cut short by a crash.
+     */
+    private void recover() throws IOException {
+        List<Path> segments = segments(directory);
+        if (segments.isEmpty()) {
+            nextSequence = 0;
+            roll();
+            return;
+        }
+        Path last = segments.get(segments.size() - 1);
+        long first = firstSequence(last);
+        channel = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long[] end = DecisionLogReader.scan(channel, first);
+            channel.truncate(end[0]);
+            channel.position(end[0]);
+            segmentSize = end[0];
+            nextSequence = end[1];
+        } catch (IOException | RuntimeException e) {
+            //The log is not opened, so the segment it was recovering is not left open either
+            try {
+                channel.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            channel = null;
+            throw e;
+        }
+    }
+
+    /**
+     * This method lists the segments of a log in order.
+     *
+     * @param directory where the segment files are
+     * @return the segment files, oldest first
+     * @throws IOException if the directory cannot be read
+     */
+    static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                segments.add(file);
+            }
+        }
+        //Names are zero padded, so name order is sequence order
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * This method returns the sequence number a segment starts at.
+     */
+    static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    private static Path segment(Path directory, long firstSequence) {
+        return directory.resolve(String.format("%020d%s", firstSequence, SUFFIX));
+    }
+}
@@ -0,0 +1,206 @@
+package cpsc2150.banking.controllers;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32C;
+
+/**
+ * This class reads a DecisionLog back in order, one LoggedDecision at a time, for audits and
+ * reconciliation. Each segment is memory mapped read only while it is read. Reading stops at the first
+ * record that is cut short or fails its checksum, which is where a crash left the log.
+ *
+ * It can be used while the log is being written; it sees the records that had been written to each segment
+ * when it was opened, which may include records that are not yet durable. Only a record that
+ * DecisionLog.appendAndWait() has returned for is known to be on disk.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ */
+public final class DecisionLogReader implements Iterator<LoggedDecision>, Closeable {
+    private final Iterator<Path> segments;
+    private final CRC32C crc = new CRC32C();
+    private ByteBuffer segment;
+    private long sequence;
+    private LoggedDecision next;
+    private boolean ended;
+
+    /**
+     * Constructor that reads a log from its first record.
+     *
+     * @param directory where the segment files are
+     * @throws IOException if the directory cannot be read
+     */
+    public DecisionLogReader(Path directory) throws IOException {
+        segments = DecisionLog.segments(directory).iterator();
+    }
+
+    /**
+     * This method re-drives every decision in a log through an engine and reports the ones that differ.
+     * Two decisions agree when their validity, approval, rate, payment, debt to income ratio, principal,
+     * and years are the same. The new decisions are never appended to the engine's own audit log, which
+     * may be the log being read.
+     *
+     * @param directory where the segment files are
+     * @param engine the engine to decide the logged applications again
+     * @param mismatch called with each logged decision and the new decision when they differ
+     * @return the number of records read
+     * @throws IOException if the log cannot be read
+     */
+    public static long reconcile(Path directory, UnderwritingEngine engine,
+                                 BiConsumer<LoggedDecision, Decision> mismatch) throws IOException {
+        long count = 0;
+        try (DecisionLogReader reader = new DecisionLogReader(directory)) {
+            while (reader.hasNext()) {
+                LoggedDecision logged = reader.next();
+                Decision now = engine.decide(logged.getRequest());
+                if (!agree(logged.getDecision(), now)) {
+                    mismatch.accept(logged, now);
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return true if there is another whole record
+     * @throws UncheckedIOException if a segment cannot be read
+     */
+    @Override
+    public boolean hasNext() {
+        while (next == null && !ended) {
+            if (segment != null && segment.hasRemaining()) {
+                next = read();
+                if (next == null) {
+                    //A torn record ends the log
+                    ended = true;
+                }
+            } else if (segments.hasNext()) {
+                open(segments.next());
+            } else {
+                ended = true;
+            }
+        }
+        return next != null;
+    }
+
+    /**
+     * @return the next record
+     * @throws NoSuchElementException if there are no more records
+     */
+    @Override
+    public LoggedDecision next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        LoggedDecision record = next;
+        next = null;
+        return record;
+    }
+
+    @Override
+    public void close() {
+        segment = null;
+        ended = true;
+    }
+
+    private void open(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            sequence = DecisionLog.firstSequence(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * This method reads the record at the segment's position, or returns null if it is not whole.
+     */
+    private LoggedDecision read() {
+        int at = segment.position();
+        int length = check(segment, at, sequence, crc);
+        if (length < 0) {
+            return null;
+        }
+        ByteBuffer record = segment.duplicate();
+        record.position(at + 12).limit(at + 12 + length);
+        LoggedDecision decision;
+        try {
+            decision = LoggedDecision.decode(sequence, record);
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+        segment.position(at + DecisionLog.FRAME_BYTES + length);
+        sequence++;
+        return decision;
+    }
+
+    /**
+     * This method checks the frame at a position.
+     *
+     * @return the length of the record, or -1 if the frame is cut short, out of order, or fails its checksum
+     */
+    private static int check(ByteBuffer in, int at, long expected, CRC32C crc) {
+        if (in.limit() - at < DecisionLog.FRAME_BYTES) {
+            return -1;
+        }
+        int length = in.getInt(at);
+        if (length < 0 || in.limit() - at - DecisionLog.FRAME_BYTES < length || in.getLong(at + 4) != expected) {
+            return -1;
+        }
+        ByteBuffer covered = in.duplicate();
+        covered.position(at + 4).limit(at + 12 + length);
+        crc.reset();
+        crc.update(covered);
+        return (int) crc.getValue() == in.getInt(at + 12 + length) ? length : -1;
+    }
+
+    /**
+     * This method finds the end of the whole records in a segment, for DecisionLog to append after.
+     *
+     * @param channel the segment
+     * @param first the sequence number of the segment's first record
+     * @return the position after the last whole record and the sequence number that comes next
+     * @throws IOException if the segment cannot be read
+     */
+    static long[] scan(FileChannel channel, long first) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return new long[] { 0, first };
+        }
+        //Read rather than mapped, since the caller truncates the file afterwards
+        ByteBuffer in = ByteBuffer.allocate((int) Math.min(size, Integer.MAX_VALUE));
+        while (in.hasRemaining()) {
+            if (channel.read(in, in.position()) < 0) {
+                break;
+            }
+        }
+        in.flip();
+        CRC32C crc = new CRC32C();
+        int at = 0;
+        long sequence = first;
+        for (int length; (length = check(in, at, sequence, crc)) >= 0; sequence++) {
+            at += DecisionLog.FRAME_BYTES + length;
+        }
+        return new long[] { at, sequence };
+    }
+
+    private static boolean agree(Decision a, Decision b) {
+        if (a.isValid() != b.isValid()) {
+            return false;
+        }
+        if (!a.isValid()) {
+            return a.getErrors().equals(b.getErrors());
+        }
+        return a.isApproved() == b.isApproved()
+                && Double.compare(a.getRate(), b.getRate()) == 0
+                && Double.compare(a.getPayment(), b.getPayment()) == 0
+                && Double.compare(a.getDebtToIncome(), b.getDebtToIncome()) == 0
+                && Double.compare(a.getPrincipal(), b.getPrincipal()) == 0
+                && a.getYears() == b.getYears();
+    }
+}
@@ -0,0 +1,150 @@
+package cpsc2150.banking.controllers;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.Function;
+
+/**
+ * This class is one stage of an IntakePipeline: a Flow.Processor that applies a function to each item on
+ * its own worker threads and publishes the results through a bounded SubmissionPublisher.
+ *
+ * It asks upstream for one item per worker up front and for one more each time a worker finishes, so no
+ * more than parallelism items are ever being worked on. A worker whose result does not fit in the
+ * downstream buffer waits for room before it asks for more, so a slow stage further down holds back every
+ * stage before it instead of letting items pile up.
+ *
+ * Results are published in the order workers finish, which is not the input order when parallelism > 1.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines:
+ *      parallelism - the most items being worked on at once
+ *      bufferSize - the most results waiting for downstream demand
+ */
+final class FlowStage<T, R> implements Flow.Processor<T, R> {
+    private final Function<? super T, ? extends R> function;
+    private final int parallelism;
+    private final ExecutorService workers;
+    private final SubmissionPublisher<R> out;
+    // Items handed to workers that have not finished, plus one until upstream completes
+    private final AtomicInteger active = new AtomicInteger(1);
+    // Set once upstream's one share of active has been given back, by completion, an error, or a failure
+    private final AtomicBoolean upstreamReleased = new AtomicBoolean();
+    private volatile Flow.Subscription upstream;
+    private volatile Throwable failure;
+
+    /**
+     * Constructor for a stage.
+     *
+     * @param name used to name the worker threads
+     * @param function applied to each item; a null result is dropped
+     * @param parallelism the number of worker threads
+     * @param bufferSize the downstream buffer size
+     * @param delivery the executor the downstream subscriber is called on
+     * @pre parallelism > 0 AND bufferSize > 0 AND function does not throw for well formed items
+     */
+    FlowStage(String name, Function<? super T, ? extends R> function, int parallelism, int bufferSize,
+              Executor delivery) {
+        this.function = function;
+        this.parallelism = parallelism;
+        this.workers = Executors.newFixedThreadPool(parallelism, daemon(name));
+        this.out = new SubmissionPublisher<>(delivery, bufferSize);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super R> subscriber) {
+        out.subscribe(subscriber);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (upstream != null) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        subscription.request(parallelism);
+    }
+
+    @Override
+    public void onNext(T item) {
+        active.incrementAndGet();
+        if (failure != null) {
+            //Sent before the cancel took effect; the workers may already be shut down
+            finished();
+            return;
+        }
+        workers.execute(() -> {
+            try {
+                if (failure == null && !out.isClosed()) {
+                    R result = function.apply(item);
+                    //Waits here while downstream is full, which is what throttles the stages before it
+                    if (result != null) {
+                        out.submit(result);
+                    }
+                    upstream.request(1);
+                }
+            } catch (RuntimeException e) {
+                fail(e);
+            } finally {
+                finished();
+            }
+        });
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        fail(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        releaseUpstream();
+    }
+
+    /**
+     * This method stops the stage: upstream is cancelled and downstream is told why. A cancelled upstream
+     * never completes, so its share of active is given back here.
+     */
+    private void fail(Throwable throwable) {
+        if (failure == null) {
+            failure = throwable;
+            if (upstream != null) {
+                upstream.cancel();
+            }
+            out.closeExceptionally(throwable);
+        }
+        releaseUpstream();
+    }
+
+    /**
+     * This method gives back upstream's share of active, once however upstream ends.
+     */
+    private void releaseUpstream() {
+        if (upstreamReleased.compareAndSet(false, true)) {
+            finished();
+        }
+    }
+
+    /**
+     * This method closes the stage once upstream is done and the last worker has finished.
+     */
+    private void finished() {
+        if (active.decrementAndGet() == 0) {
+            if (failure == null) {
+                out.close();
+            }
+            workers.shutdown();
+        }
+    }
+
+    static ThreadFactory daemon(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
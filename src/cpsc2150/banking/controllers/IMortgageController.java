@@ -1,3 +1,5 @@
+package cpsc2150.banking.controllers;
+
 /**
  * This interface is the Controller that partners with IMortgageView
  *
@@ -0,0 +1,323 @@
+package cpsc2150.banking.controllers;
+import cpsc2150.banking.models.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class pushes application lines from any number of feeds through the model layer as a
+ * java.util.concurrent.Flow pipeline:
+ *
+ *      parse -> validate -> price -> approve -> sink
+ *
+ * parse reads the same lines as BatchUnderwriter, validate uses the checks behind MortgageController's
+ * retry loops, price builds a Customer and a Mortgage, and approve asks the Mortgage for its decision.
+ * Every stage has its own worker threads and a bounded buffer in front of the next stage, and only asks
+ * for as many items as it has room for. A slow sink therefore fills the buffers back to the front, and
+ * submit() then waits, so a burst holds at most a fixed number of applications in memory.
+ *
+ * An item that fails to parse or validate skips pricing and reaches the sink with its errors. With more
+ * than one worker per stage, items reach the sink out of order; each carries the sequence number it was
+ * submitted with.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines:
+ *      parallelism - the number of workers in each stage, in pipeline order
+ *      bufferSize - the most items waiting between two stages
+ */
+public final class IntakePipeline implements AutoCloseable {
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+
+    private final SubmissionPublisher<Item> source;
+    private final ExecutorService delivery;
+    private final AtomicLong sequence = new AtomicLong();
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    /**
+     * This class is one application on its way through the pipeline. Each stage fills in its part and
+     * hands the same item on.
+     *
+     * @Defines:
+     *      sequence - the order the line was submitted in, from 0
+     *      line - the application line
+     *      request - the parsed application, or null if the line did not parse
+     *      errors - why the application is invalid, empty if it is valid
+     *      mortgage - the priced loan, or null if the application is invalid
+     *      decision - the decision, set by approve
+     */
+    public static final class Item {
+        private final long sequence;
+        private final String line;
+        private ApplicationRequest request;
+        private List<String> errors = Collections.emptyList();
+        private IMortgage mortgage;
+        private Decision decision;
+
+        Item(long sequence, String line) {
+            this.sequence = sequence;
+            this.line = line;
+        }
+
+        /**
+         * @return the order the line was submitted in, from 0
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * @return the application line
+         */
+        public String getLine() {
+            return line;
+        }
+
+        /**
+         * @return the parsed application, or null if the line did not parse
+         */
+        public ApplicationRequest getRequest() {
+            return request;
+        }
+
+        /**
+         * @return the priced loan, or null if the application is invalid
+         */
+        public IMortgage getMortgage() {
+            return mortgage;
+        }
+
+        /**
+         * @return the decision, with the errors if the application is invalid
+         */
+        public Decision getDecision() {
+            return decision;
+        }
+
+        private boolean isValid() {
+            return errors.isEmpty();
+        }
+    }
+
+    /**
+     * Constructor for a pipeline with one worker per core in every stage.
+     *
+     * @param sink receives every decided item, then onComplete once close() has been called and every
+     *             item has been delivered
+     * @pre sink != null
+     */
+    public IntakePipeline(Flow.Subscriber<? super Item> sink) {
+        this(sink, Runtime.getRuntime().availableProcessors(), DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor for a pipeline with the same number of workers in every stage.
+     *
+     * @param sink receives every decided item
+     * @param parallelism the number of workers in each stage
+     * @param bufferSize the most items waiting between two stages
+     * @pre sink != null AND parallelism > 0 AND bufferSize > 0
+     */
+    public IntakePipeline(Flow.Subscriber<? super Item> sink, int parallelism, int bufferSize) {
+        this(sink, parallelism, parallelism, parallelism, parallelism, bufferSize);
+    }
+
+    /**
+     * Constructor for a pipeline with a number of workers chosen for each stage.
+     *
+     * @param sink receives every decided item
+     * @param parseWorkers the number of workers parsing lines
+     * @param validateWorkers the number of workers validating applications
+     * @param priceWorkers the number of workers pricing loans
+     * @param approveWorkers the number of workers approving loans
+     * @param bufferSize the most items waiting between two stages
+     * @pre sink != null AND every worker count > 0 AND bufferSize > 0
+     */
+    public IntakePipeline(Flow.Subscriber<? super Item> sink, int parseWorkers, int validateWorkers,
+                          int priceWorkers, int approveWorkers, int bufferSize) {
+        //Delivery threads only hand items to the next stage's workers, except for the sink's
+        delivery = Executors.newCachedThreadPool(FlowStage.daemon("intake-delivery"));
+        source = new SubmissionPublisher<>(delivery, bufferSize);
+
+        FlowStage<Item, Item> parse = new FlowStage<>("intake-parse", IntakePipeline::parse, parseWorkers, bufferSize, delivery);
+        FlowStage<Item, Item> validate = new FlowStage<>("intake-validate", IntakePipeline::validate, validateWorkers, bufferSize, delivery);
+        FlowStage<Item, Item> price = new FlowStage<>("intake-price", IntakePipeline::price, priceWorkers, bufferSize, delivery);
+        FlowStage<Item, Item> approve = new FlowStage<>("intake-approve", IntakePipeline::approve, approveWorkers, bufferSize, delivery);
+
+        //Subscribes from the sink backwards so no stage publishes before the next one is listening
+        approve.subscribe(new Sink(sink));
+        price.subscribe(approve);
+        validate.subscribe(price);
+        parse.subscribe(validate);
+        source.subscribe(parse);
+    }
+
+    /**
+     * This method submits one application line, waiting while the pipeline is full.
+     *
+     * @param line the application line: name,yearlyIncome,monthlyDebt,creditScore,houseCost,downPayment,years
+     * @return the sequence number of the line
+     * @throws IllegalStateException if the pipeline is closed
+     * @pre line != null
+     */
+    public long submit(String line) {
+        //Numbered under the publisher's lock so sequence numbers follow submission order
+        synchronized (source) {
+            long n = sequence.getAndIncrement();
+            source.submit(new Item(n, line));
+            return n;
+        }
+    }
+
+    /**
+     * This method subscribes the pipeline to a feed of application lines. The feed is asked for one line
+     * at a time, and only after the last one fit in the pipeline, so a fast feed is held back too.
+     *
+     * @param feed the feed
+     * @return completes when the feed completes, or exceptionally if it fails
+     * @pre feed != null
+     */
+    public CompletableFuture<Void> feed(Flow.Publisher<String> feed) {
+        CompletableFuture<Void> fed = new CompletableFuture<>();
+        feed.subscribe(new Flow.Subscriber<String>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                subscription = s;
+                s.request(1);
+            }
+
+            @Override
+            public void onNext(String line) {
+                try {
+                    submit(line);
+                    subscription.request(1);
+                } catch (IllegalStateException e) {
+                    subscription.cancel();
+                    fed.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                fed.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                fed.complete(null);
+            }
+        });
+        return fed;
+    }
+
+    /**
+     * This method ends the input. Items already submitted are still decided and delivered.
+     *
+     * @post [no more lines can be submitted]
+     */
+    @Override
+    public void close() {
+        synchronized (source) {
+            source.close();
+        }
+    }
+
+    /**
+     * @return completes after the sink's onComplete or onError has returned
+     */
+    public CompletableFuture<Void> completion() {
+        return done;
+    }
+
+    /**
+     * This method parses an application line the way BatchUnderwriter does.
+     */
+    private static Item parse(Item item) {
+        String[] f = BatchUnderwriter.split(item.line);
+        if (f.length != 7) {
+            item.errors = Collections.singletonList("expected 7 fields");
+            return item;
+        }
+        try {
+            item.request = new ApplicationRequest(f[0].trim(), Double.parseDouble(f[1].trim()),
+                    Double.parseDouble(f[2].trim()), Integer.parseInt(f[3].trim()), Double.parseDouble(f[4].trim()),
+                    Double.parseDouble(f[5].trim()), Integer.parseInt(f[6].trim()));
+        } catch (NumberFormatException e) {
+            item.errors = Collections.singletonList("not a number");
+        }
+        return item;
+    }
+
+    private static Item validate(Item item) {
+        if (item.isValid()) {
+            item.errors = UnderwritingEngine.validate(item.request);
+        }
+        return item;
+    }
+
+    private static Item price(Item item) {
+        if (item.isValid()) {
+            ApplicationRequest r = item.request;
+            ICustomer customer = new Customer(r.getMonthlyDebt(), r.getYearlyIncome(), r.getCreditScore(), r.getName());
+            item.mortgage = new Mortgage(r.getHouseCost(), r.getDownPayment(), r.getYears(), customer);
+        }
+        return item;
+    }
+
+    private static Item approve(Item item) {
+        if (item.isValid()) {
+            IMortgage m = item.mortgage;
+            item.decision = new Decision(m.loanApproved(), m.getRate(), m.getPayment(), m.getDebtToIncomeRatio(),
+                    m.getPrincipal(), m.getYears());
+        } else {
+            item.decision = new Decision(item.errors);
+        }
+        return item;
+    }
+
+    /**
+     * This class passes items to the caller's sink and notes when it is done, so the delivery threads
+     * can be let go.
+     */
+    private final class Sink implements Flow.Subscriber<Item> {
+        private final Flow.Subscriber<? super Item> sink;
+
+        Sink(Flow.Subscriber<? super Item> sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            sink.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(Item item) {
+            sink.onNext(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            try {
+                sink.onError(throwable);
+            } finally {
+                delivery.shutdown();
+                done.completeExceptionally(throwable);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            try {
+                sink.onComplete();
+            } finally {
+                delivery.shutdown();
+                done.complete(null);
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package cpsc2150.banking.controllers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * This class is one record of a DecisionLog: an application, the decision made on it, when it was made,
+ * and its place in the log. The record's bytes are, in order:
+ *
+ *      long    time, in milliseconds since the epoch
+ *      double  yearly income, monthly debt
+ *      int     credit score
+ *      double  house cost, down payment
+ *      int     years
+ *      short   name length, then the name in UTF-8
+ *      byte    flags: VALID, APPROVED
+ *      if valid:   double rate, payment, debt to income, principal; int years
+ *      otherwise:  byte error count, then for each a short length and the message in UTF-8
+ *
+ * It never changes once created, so it can be shared between threads freely.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines:
+ *      sequence - the record's position in the log, counting from 0
+ *      time - when the decision was logged, in milliseconds since the epoch
+ *      request - the application
+ *      decision - the decision made on it
+ */
+public final class LoggedDecision {
+    static final int VALID = 1;
+    static final int APPROVED = 2;
+
+    private final long sequence;
+    private final long time;
+    private final ApplicationRequest request;
+    private final Decision decision;
+
+    /**
+     * Constructor for a record read back from a log.
+     * @post [every getter returns the matching parameter]
+     */
+    public LoggedDecision(long sequence, long time, ApplicationRequest request, Decision decision) {
+        this.sequence = sequence;
+        this.time = time;
+        this.request = request;
+        this.decision = decision;
+    }
+
+    /**
+     * @return the record's position in the log
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return when the decision was logged, in milliseconds since the epoch
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return the application
+     */
+    public ApplicationRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * @return the decision made on the application
+     */
+    public Decision getDecision() {
+        return decision;
+    }
+
+    /**
+     * This method encodes an application and its decision in the record format.
+     *
+     * @param time when the decision was made, in milliseconds since the epoch
+     * @param request the application
+     * @param decision the decision
+     * @return the record's bytes
+     */
+    static byte[] encode(long time, ApplicationRequest request, Decision decision) {
+        byte[] name = utf8(request.getName());
+        int size = 8 + 8 + 8 + 4 + 8 + 8 + 4 + 2 + name.length + 1;
+        byte[][] errors = null;
+        if (decision.isValid()) {
+            size += 8 * 4 + 4;
+        } else {
+            List<String> messages = decision.getErrors();
+            errors = new byte[Math.min(messages.size(), 255)][];
+            size += 1;
+            for (int i = 0; i < errors.length; i++) {
+                errors[i] = utf8(messages.get(i));
+                size += 2 + errors[i].length;
+            }
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putLong(time);
+        out.putDouble(request.getYearlyIncome());
+        out.putDouble(request.getMonthlyDebt());
+        out.putInt(request.getCreditScore());
+        out.putDouble(request.getHouseCost());
+        out.putDouble(request.getDownPayment());
+        out.putInt(request.getYears());
+        out.putShort((short) name.length).put(name);
+        out.put((byte) ((decision.isValid() ? VALID : 0) | (decision.isApproved() ? APPROVED : 0)));
+        if (errors == null) {
+            out.putDouble(decision.getRate());
+            out.putDouble(decision.getPayment());
+            out.putDouble(decision.getDebtToIncome());
+            out.putDouble(decision.getPrincipal());
+            out.putInt(decision.getYears());
+        } else {
+            out.put((byte) errors.length);
+            for (byte[] error : errors) {
+                out.putShort((short) error.length).put(error);
+            }
+        }
+        return out.array();
+    }
+
+    /**
+     * This method decodes one record.
+     *
+     * @param sequence the record's position in the log
+     * @param in the record's bytes, from its position to its limit
+     * @return the record
+     * @throws java.nio.BufferUnderflowException if the bytes are not a whole record
+     */
+    static LoggedDecision decode(long sequence, ByteBuffer in) {
+        long time = in.getLong();
+        double yearlyIncome = in.getDouble();
+        double monthlyDebt = in.getDouble();
+        int creditScore = in.getInt();
+        double houseCost = in.getDouble();
+        double downPayment = in.getDouble();
+        int years = in.getInt();
+        String name = string(in);
+        ApplicationRequest request = new ApplicationRequest(name, yearlyIncome, monthlyDebt, creditScore, houseCost, downPayment, years);
+
+        int flags = in.get();
+        Decision decision;
+        if ((flags & VALID) != 0) {
+            decision = new Decision((flags & APPROVED) != 0, in.getDouble(), in.getDouble(), in.getDouble(),
+                    in.getDouble(), in.getInt());
+        } else {
+            int count = in.get() & 0xFF;
+            List<String> errors = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                errors.add(string(in));
+            }
+            decision = new Decision(errors);
+        }
+        return new LoggedDecision(sequence, time, request, decision);
+    }
+
+    /**
+     * This method encodes a string as UTF-8, cut to the most a short length can hold.
+     */
+    private static byte[] utf8(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        return bytes.length <= Short.MAX_VALUE ? bytes : Arrays.copyOf(bytes, Short.MAX_VALUE);
+    }
+
+    private static String string(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,20 +1,26 @@
 package cpsc2150.banking.controllers;
 import cpsc2150.banking.models.*;
+import cpsc2150.banking.metrics.*;
 import cpsc2150.banking.views.*;
 
+import java.io.*;
+
 /**
  * This class implements IMortgageController. The controller uses the views to ask the user for input,
  * and passes the information to them to receive back a response. It then uses the views to display the
- * necessary output.
+ * necessary output. The decisions themselves are made by an UnderwritingEngine, so this class only
+ * handles the conversation with the user.
  *
  * @author Connor Love
  * @since 4/5/2023
  *
  * @Defines:
  *      IMortgageView controlView - the view object being used
+ *      UnderwritingEngine engine - the engine that decides applications
  */
 public class MortgageController implements IMortgageController {
     private IMortgageView controlView;
+    private final UnderwritingEngine engine;
 
     /**
      * Constructor that sets the view object to use
@@ -23,7 +29,19 @@ public class MortgageController implements IMortgageController {
      * @post controlView is set to the view object
      */
     public MortgageController(IMortgageView view) {
+        this(view, new UnderwritingEngine());
+    }
+
+    /**
+     * Constructor that sets the view object and the engine that decides applications
+     * @pre [The view object has been created] AND engine != null
+     * @param view the view object to use
+     * @param engine the engine to decide applications with
+     * @post controlView is set to the view object
+     */
+    public MortgageController(IMortgageView view, UnderwritingEngine engine) {
         controlView = view;
+        this.engine = engine;
     }
 
     /**
@@ -31,7 +49,8 @@ public class MortgageController implements IMortgageController {
      * information needed, and then sends the information of to the model classes. If any part of the information given is invalid
      * The user will be prompted to enter the information again.
      * @post The application is returned. If approved, The necessary data will be returned,
-     * else a message will be outputted, that states the mortgage was not approved.
+     * else a message will be outputted, that states the mortgage was not approved. The method returns
+     * once the user does not want to consider another customer.
      */
     @Override
     public void submitApplication() {
@@ -41,6 +60,8 @@ public class MortgageController implements IMortgageController {
         double yearlyIncome;
         boolean newMortgage;
         boolean newCustomer;
+        //The message for the answer just read, or null once it is acceptable
+        String error;
 
         //While a new customer wants to start a new mortgage application
         while (startOver) {
@@ -55,9 +76,9 @@ public class MortgageController implements IMortgageController {
             yearlyIncome = controlView.getYearlyIncome();
 
             //While the customer's yearly income is less than 0
-            while (yearlyIncome < 0) {
+            while ((error = UnderwritingEngine.checkIncome(yearlyIncome)) != null) {
                 //Error message is outputted
-                controlView.printToUser("Income must be greater than 0.");
+                controlView.printToUser(error);
                 //Asks again for the customer's yearly income
                 controlView.printToUser("How much is your yearly income?");
                 //Stores the input
@@ -71,9 +92,9 @@ public class MortgageController implements IMortgageController {
             double monthlyDebt = controlView.getMonthlyDebt();
 
             //While the customer's input is less than 0
-            while(monthlyDebt < 0) {
+            while ((error = UnderwritingEngine.checkDebt(monthlyDebt)) != null) {
                 //Error message is outputted.
-                controlView.printToUser("Debt must be greater than or equal to 0.");
+                controlView.printToUser(error);
                 //Asks the user again for their monthly debt payments
                 controlView.printToUser("How much are your monthly debt payments?");
                 //Stores the input
@@ -86,9 +107,9 @@ public class MortgageController implements IMortgageController {
             //Stores the input
             int creditScore = controlView.getCreditScore();
             //While the user's input is less than 0 or greater than 850
-            while (creditScore < 0 || creditScore > 850) {
+            while ((error = UnderwritingEngine.checkCreditScore(creditScore)) != null) {
                 //Error message is outputted.
-                controlView.printToUser("Credit Score must be greater than 0 and less than 850");
+                controlView.printToUser(error);
                 //Asks the user again for their credit score
                 controlView.printToUser("What is your credit score?");
                 //Stores the input
@@ -103,9 +124,9 @@ public class MortgageController implements IMortgageController {
                 double houseCost = controlView.getHouseCost();
 
                 //While the user input for the house cost is less than 0
-                while (houseCost < 0) {
+                while ((error = UnderwritingEngine.checkHouseCost(houseCost)) != null) {
                     //Error message is outputted.
-                    controlView.printToUser("Cost must be greater than 0.");
+                    controlView.printToUser(error);
                     //Asks the user again for the cost of the house
                     controlView.printToUser("How much does the house cost?");
                     //Stores the input
@@ -119,26 +140,26 @@ public class MortgageController implements IMortgageController {
                 double downPayment = controlView.getDownPayment();
 
                 //While the user's input is less than 0 or greater than the cost of the house.
-                while (downPayment < 0 || downPayment >= houseCost) {
+                while ((error = UnderwritingEngine.checkDownPayment(downPayment, houseCost)) != null) {
                     //Error message is outputted.
-                    System.out.println("Down Payment must be greater than 0 and less than the cost of the house.");
+                    controlView.printToUser(error);
                     //Asks the user again for the down payment
-                    System.out.println("How much is the down payment?");
+                    controlView.printToUser("How much is the down payment?");
                     //Stores the input
                     downPayment = controlView.getDownPayment();
                 }
                 //Years
                 //Ask the user for the number of years to pay off the mortgage
-                System.out.println("How many years?");
+                controlView.printToUser("How many years?");
                 //Stores the input
                 int years = controlView.getYears();
 
                 //While the user's input for the number of years to pay off the mortgage is less than 0
-                while (years < 0) {
+                while ((error = UnderwritingEngine.checkYears(years)) != null) {
                     //Errors message is outputted.
-                    System.out.println("Years must be greater than 0.");
+                    controlView.printToUser(error);
                     //Ask the user again for the number of years to pay off the mortgage
-                    System.out.println("How many years?");
+                    controlView.printToUser("How many years?");
                     //Stores the input
                     years = controlView.getYears();
                 }
@@ -147,18 +168,14 @@ public class MortgageController implements IMortgageController {
                 doAgain = false;
 
                 //Output
-                //Sets ICustomer object customer to a new customer with the resources given by the user
-                ICustomer customer = new Customer(monthlyDebt, yearlyIncome, creditScore, name);
-                //Sets IMortgage object mortgage to a new Mortgage with the resources given by the user
-                IMortgage mortgage = new Mortgage(houseCost, downPayment, years, customer);
-                //Stores the ICustomer object customer into customerOutput in string format
-                String customerOutput = customer.toString();
-                //Prints the customerOutput to the user
-                controlView.printToUser(customerOutput);
-                //Stores the IMortgage object Mortgage into mortgageOutput in string format
-                String mortgageOutput = mortgage.toString();
-                //Prints the mortgageOutput to the user
-                controlView.printToUser(mortgageOutput);
+                //Bundles the resources given by the user into an application
+                ApplicationRequest request = new ApplicationRequest(name, yearlyIncome, monthlyDebt, creditScore, houseCost, downPayment, years);
+                //Has the engine decide the application
+                Decision decision = engine.underwrite(request);
+                //Prints the customer's information to the user
+                controlView.printToUser(customerReport(request));
+                //Prints the mortgage's information to the user
+                controlView.printToUser(mortgageReport(decision));
                 //Ask the user if the would like to apply for another mortgage under the same name
                 newMortgage = controlView.getAnotherMortgage();
 
@@ -176,13 +193,51 @@ public class MortgageController implements IMortgageController {
                         //Sets startOver to true
                         startOver = true;
                     }
-                    //Else, the program is exited.
+                    //Else, the application is finished.
                     else {
-                        System.exit(0);
+                        return;
                     }
                 }
             }
 
         }
     }
+
+    /**
+     * This method renders the customer's information, ending with "Mortgage info:".
+     * @param request the application
+     * @return the customer report
+     */
+    private static String customerReport(ApplicationRequest request) {
+        long start = UnderwritingMetrics.start();
+        StringBuilder sb = new StringBuilder(128);
+        try {
+            ReportWriter.writeCustomer(request.getName(), request.getYearlyIncome(), request.getCreditScore(), request.getMonthlyDebt(), sb);
+        } catch (IOException e) {
+            //StringBuilder never throws IOException
+            throw new UncheckedIOException(e);
+        }
+        String text = sb.toString();
+        UnderwritingMetrics.record(Stage.RENDERING, start);
+        return text;
+    }
+
+    /**
+     * This method renders the mortgage's information, or that it was not approved.
+     * @param decision the decision on the application
+     * @return the mortgage report
+     */
+    private static String mortgageReport(Decision decision) {
+        long start = UnderwritingMetrics.start();
+        StringBuilder sb = new StringBuilder(128);
+        try {
+            ReportWriter.writeMortgage(decision.isApproved(), decision.getPrincipal(), decision.getRate(), decision.getYears(), decision.getPayment(), sb);
+        } catch (IOException e) {
+            //StringBuilder never throws IOException
+            throw new UncheckedIOException(e);
+        }
+        String text = sb.toString();
+        UnderwritingMetrics.record(Stage.RENDERING, start);
+        return text;
+    }
 }
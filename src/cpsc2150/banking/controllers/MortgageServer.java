@@ -0,0 +1,247 @@
+package cpsc2150.banking.controllers;
+import cpsc2150.banking.metrics.*;
+
+import com.sun.net.httpserver.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This class serves quote and approval requests over HTTP on the loopback interface, so many clients can
+ * be underwritten at once by one JVM. Every request goes through the UnderwritingEngine, which uses the
+ * same checks and the same Customer and Mortgage classes as the console program.
+ *
+ * GET /quote?name=..&income=..&debt=..&score=..&cost=..&down=..&years=..
+ *      answers approved, rate, payment and dti, one "key=value" per line
+ * GET /approve?(same parameters)
+ *      answers only approved
+ * GET /stats
+ *      answers the request count, latency percentiles in microseconds, and quote cache statistics
+ *
+ * Every response carries X-Latency-Micros for that request and X-Latency-P50-Micros and
+ * X-Latency-P99-Micros for every request so far.
+ *
+ * Repeated applications are answered from a QuoteCache instead of being priced again. If the engine has a
+ * DecisionLog, a decision is only answered once it is durable there, and 503 is answered if it cannot be.
+ *
+ * Requests run on a fixed pool of worker threads. When every worker is busy, requests wait in a bounded
+ * queue; when the queue is full, the thread accepting connections runs the request itself, which slows
+ * down accepting instead of letting the queue grow without bound.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines:
+ *      workers - the most requests handled at the same time
+ *      queueLimit - the most requests waiting for a worker
+ */
+public class MortgageServer {
+    private final HttpServer server;
+    private final ThreadPoolExecutor pool;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final UnderwritingEngine engine;
+
+    /**
+     * Constructor that binds the server to a loopback port without starting it.
+     *
+     * @param port the port to listen on, or 0 for any free port
+     * @param workers the number of worker threads
+     * @param queueLimit the number of requests that can wait for a worker
+     * @param backlog the number of connections the operating system can queue
+     * @throws IOException if the port cannot be bound
+     * @pre workers > 0 AND queueLimit > 0
+     * @post [the server is bound to 127.0.0.1:port but not accepting requests]
+     */
+    public MortgageServer(int port, int workers, int queueLimit, int backlog) throws IOException {
+        this(port, workers, queueLimit, backlog, new UnderwritingEngine(new QuoteCache()));
+    }
+
+    /**
+     * Constructor that binds the server to a loopback port without starting it, deciding with the given engine.
+     *
+     * @param port the port to listen on, or 0 for any free port
+     * @param workers the number of worker threads
+     * @param queueLimit the number of requests that can wait for a worker
+     * @param backlog the number of connections the operating system can queue
+     * @param engine the engine to decide applications with; it must have a QuoteCache
+     * @throws IOException if the port cannot be bound
+     * @pre workers > 0 AND queueLimit > 0 AND engine.getCache() != null
+     * @post [the server is bound to 127.0.0.1:port but not accepting requests]
+     */
+    public MortgageServer(int port, int workers, int queueLimit, int backlog, UnderwritingEngine engine) throws IOException {
+        this.engine = engine;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), backlog);
+        pool = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueLimit), new ThreadPoolExecutor.CallerRunsPolicy());
+        server.setExecutor(pool);
+        server.createContext("/quote", exchange -> handle(exchange, true));
+        server.createContext("/approve", exchange -> handle(exchange, false));
+        server.createContext("/stats", this::stats);
+    }
+
+    /**
+     * This method starts accepting requests.
+     * @post [requests are being served]
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * This method stops accepting requests and waits for the ones in progress.
+     *
+     * @param delaySeconds how long to wait for requests in progress
+     * @post [the server is stopped and its threads are shut down]
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        pool.shutdown();
+    }
+
+    /**
+     * This method returns the port the server is bound to.
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * This method returns the latencies of every request handled so far.
+     * @return the latency histogram, in nanoseconds
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * This method returns the cache repeated applications are answered from.
+     * @return the quote cache
+     */
+    public QuoteCache getCache() {
+        return engine.getCache();
+    }
+
+    /**
+     * This method underwrites one request and writes the decision.
+     */
+    private void handle(HttpExchange exchange, boolean quote) throws IOException {
+        long start = System.nanoTime();
+        int status = 200;
+        StringBuilder body = new StringBuilder(96);
+
+        try {
+            Map<String, String> q = query(exchange.getRequestURI().getRawQuery());
+            String name = q.getOrDefault("name", "customer");
+            double yearlyIncome = Double.parseDouble(required(q, "income"));
+            double monthlyDebt = Double.parseDouble(required(q, "debt"));
+            int creditScore = Integer.parseInt(required(q, "score"));
+            double houseCost = Double.parseDouble(required(q, "cost"));
+            double downPayment = Double.parseDouble(required(q, "down"));
+            int years = Integer.parseInt(required(q, "years"));
+
+            Decision decision = engine.underwrite(new ApplicationRequest(name, yearlyIncome, monthlyDebt, creditScore, houseCost, downPayment, years));
+            if (!decision.isValid()) {
+                status = 422;
+                for (String error : decision.getErrors()) {
+                    body.append("error=").append(error).append('\n');
+                }
+            } else {
+                body.append("approved=").append(decision.isApproved()).append('\n');
+                if (quote) {
+                    body.append("rate=").append(decision.getRate()).append('\n');
+                    body.append("payment=").append(decision.getPayment()).append('\n');
+                    body.append("dti=").append(decision.getDebtToIncome()).append('\n');
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            //NumberFormatException, or a missing parameter
+            status = 400;
+            body.setLength(0);
+            body.append("error=").append(e.getMessage()).append('\n');
+        } catch (UncheckedIOException e) {
+            //The decision could not be made durable in the audit log, so it is not given out
+            status = 503;
+            body.setLength(0);
+            //Some IOExceptions carry no message, so fall back to the exception's name
+            IOException cause = e.getCause();
+            body.append("error=").append(cause.getMessage() != null ? cause.getMessage() : cause.toString()).append('\n');
+        }
+
+        long elapsed = System.nanoTime() - start;
+        latency.record(elapsed);
+        exchange.getResponseHeaders().add("X-Latency-Micros", Long.toString(elapsed / 1000));
+        respond(exchange, status, body);
+    }
+
+    /**
+     * This method writes the request count, latency percentiles, and cache statistics.
+     */
+    private void stats(HttpExchange exchange) throws IOException {
+        StringBuilder body = new StringBuilder(128);
+        body.append("count=").append(latency.getCount()).append('\n');
+        body.append("p50Micros=").append(latency.getValueAtPercentile(50) / 1000).append('\n');
+        body.append("p99Micros=").append(latency.getValueAtPercentile(99) / 1000).append('\n');
+        body.append("p999Micros=").append(latency.getValueAtPercentile(99.9) / 1000).append('\n');
+        body.append("maxMicros=").append(latency.getMax() / 1000).append('\n');
+        QuoteCache cache = engine.getCache();
+        body.append("cacheSize=").append(cache.size()).append('\n');
+        body.append("cacheHits=").append(cache.getHits()).append('\n');
+        body.append("cacheMisses=").append(cache.getMisses()).append('\n');
+        body.append("cacheEvictions=").append(cache.getEvictions()).append('\n');
+        body.append("cacheInvalidations=").append(cache.getInvalidations()).append('\n');
+        DecisionLog log = engine.getLog();
+        if (log != null) {
+            body.append("logRecords=").append(log.getRecords()).append('\n');
+            body.append("logCommits=").append(log.getCommits()).append('\n');
+        }
+        respond(exchange, 200, body);
+    }
+
+    /**
+     * This method sends a plain text response with the running latency percentiles attached.
+     */
+    private void respond(HttpExchange exchange, int status, CharSequence body) throws IOException {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        Headers headers = exchange.getResponseHeaders();
+        headers.add("Content-Type", "text/plain; charset=utf-8");
+        headers.add("X-Latency-P50-Micros", Long.toString(latency.getValueAtPercentile(50) / 1000));
+        headers.add("X-Latency-P99-Micros", Long.toString(latency.getValueAtPercentile(99) / 1000));
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * This method returns a query parameter that must be present.
+     */
+    private static String required(Map<String, String> q, String key) {
+        String value = q.get(key);
+        if (value == null) {
+            throw new IllegalArgumentException("missing " + key);
+        }
+        return value;
+    }
+
+    /**
+     * This method splits a raw query string into decoded parameters.
+     */
+    private static Map<String, String> query(String raw) {
+        Map<String, String> params = new HashMap<>();
+        if (raw == null) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+}
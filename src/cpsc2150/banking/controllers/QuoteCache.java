@@ -0,0 +1,291 @@
+package cpsc2150.banking.controllers;
+import cpsc2150.banking.models.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.Function;
+
+/**
+ * This class remembers decisions so that a repeated application is answered without pricing a Mortgage
+ * again. The key is only what the decision depends on:
+ *
+ *      the APR tier (term, percent down, and credit score tiers together)
+ *      the term in years
+ *      whether the percent down is below the minimum
+ *      the principal, yearly income, and monthly debt
+ *
+ * so two customers with different names, or credit scores in the same tier, share an entry. An
+ * application that fails validation is never cached.
+ *
+ * The cache is split into segments by key hash, and each segment is a least recently used map with its
+ * own lock, so many threads can read at once and only contend when they land on the same segment. It is
+ * bounded both by entry count and by memory, where memory is estimated at ENTRY_BYTES per entry.
+ *
+ * Every entry belongs to the RatePolicy that priced it. When a different policy is installed, the next
+ * lookup drops every entry and starts over, so a decision from old rates is never returned.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines:
+ *      maxEntries - the most decisions kept
+ *      Hits, Misses, Evictions, Invalidations: Z - counts since the cache was created
+ */
+public final class QuoteCache {
+    // Estimated heap used by one entry: the key, the Decision, and the map entry pointing at them
+    public static final int ENTRY_BYTES = 160;
+    public static final int DEFAULT_MAX_ENTRIES = 100000;
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    private final int maxEntries;
+    private final int segmentMask;
+    private final int segmentShift;
+    private final int maxPerSegment;
+    private final AtomicReference<Generation> generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Constructor for a cache with the default bounds.
+     * @post maxEntries = min(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES / ENTRY_BYTES)
+     */
+    public QuoteCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Constructor for a cache with the given bounds.
+     *
+     * @param maxEntries the most decisions to keep
+     * @param maxBytes the most heap to use, estimated at ENTRY_BYTES per entry
+     * @pre maxEntries > 0 AND maxBytes >= ENTRY_BYTES
+     * @post maxEntries = min(maxEntries, maxBytes / ENTRY_BYTES)
+     */
+    public QuoteCache(int maxEntries, long maxBytes) {
+        if (maxEntries <= 0 || maxBytes < ENTRY_BYTES) {
+            throw new IllegalArgumentException("cache must hold at least one entry");
+        }
+        int limit = (int) Math.min(maxEntries, maxBytes / ENTRY_BYTES);
+        //A power of two segments, a few per processor, but never more segments than entries
+        int segments = Integer.highestOneBit(Math.max(1, Math.min(limit, Runtime.getRuntime().availableProcessors() * 4)));
+        this.segmentMask = segments - 1;
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segments);
+        this.maxPerSegment = Math.max(1, limit / segments);
+        this.maxEntries = maxPerSegment * segments;
+        this.generation = new AtomicReference<>(new Generation(RatePolicy.current()));
+    }
+
+    /**
+     * This method returns the cached decision for an application, pricing and caching it on a miss.
+     *
+     * @param request the application
+     * @param pricer prices the application when it is not cached
+     * @return the decision, equal to pricer.apply(request) under the current rate policy
+     * @pre request != null AND [request is valid] AND pricer != null
+     * @post [the decision is cached unless the rate policy changed while it was priced]
+     */
+    public Decision get(ApplicationRequest request, Function<ApplicationRequest, Decision> pricer) {
+        Generation current = current();
+        Key key = key(current.policy, request);
+        //The top bits pick the segment, leaving the low bits to spread keys within it
+        Segment segment = current.segments[(key.hash >>> segmentShift) & segmentMask];
+
+        Decision decision;
+        synchronized (segment) {
+            decision = segment.get(key);
+        }
+        if (decision != null) {
+            hits.increment();
+            return decision;
+        }
+
+        misses.increment();
+        decision = pricer.apply(request);
+        //A decision priced after the policy changed belongs to the next generation, not this one
+        if (RatePolicy.current() == current.policy) {
+            synchronized (segment) {
+                segment.putIfAbsent(key, decision);
+            }
+        }
+        return decision;
+    }
+
+    /**
+     * This method drops every entry.
+     * @post [the cache is empty]
+     */
+    public void clear() {
+        generation.set(new Generation(RatePolicy.current()));
+    }
+
+    /**
+     * @return the number of decisions cached right now
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : generation.get().segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return maxEntries, the most decisions kept
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @return the estimated heap used by the cached decisions
+     */
+    public long getEstimatedBytes() {
+        return (long) size() * ENTRY_BYTES;
+    }
+
+    /**
+     * @return Hits, the number of lookups answered from the cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return Misses, the number of lookups that had to be priced
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the fraction of lookups answered from the cache, or 0 if there were none
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * @return Evictions, the number of entries dropped to stay within the bounds
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return Invalidations, the number of times every entry was dropped because the rate policy changed
+     */
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * This method returns the generation for the rate policy in effect, starting a new one if the policy changed.
+     */
+    private Generation current() {
+        Generation current = generation.get();
+        RatePolicy policy = RatePolicy.current();
+        while (current.policy != policy) {
+            Generation fresh = new Generation(policy);
+            if (generation.compareAndSet(current, fresh)) {
+                invalidations.increment();
+                return fresh;
+            }
+            current = generation.get();
+        }
+        return current;
+    }
+
+    /**
+     * This method builds the key for an application, the same way Mortgage finds its tier.
+     */
+    private static Key key(RatePolicy policy, ApplicationRequest request) {
+        double percentDown = request.getDownPayment() / request.getHouseCost();
+        int tier = policy.tier(request.getYears(), percentDown, request.getCreditScore());
+        return new Key(tier, request.getYears(), percentDown < policy.getMinPercentDown(),
+                request.getHouseCost() - request.getDownPayment(), request.getYearlyIncome(), request.getMonthlyDebt());
+    }
+
+    /**
+     * This class holds every entry priced under one rate policy.
+     */
+    private final class Generation {
+        final RatePolicy policy;
+        final Segment[] segments = new Segment[segmentMask + 1];
+
+        Generation(RatePolicy policy) {
+            this.policy = policy;
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = new Segment();
+            }
+        }
+    }
+
+    /**
+     * This class is one least recently used segment. Callers hold its lock for every access.
+     */
+    private final class Segment extends LinkedHashMap<Key, Decision> {
+        private static final long serialVersionUID = 1L;
+
+        Segment() {
+            super(16, .75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Decision> eldest) {
+            if (size() > maxPerSegment) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * This class is the normalized inputs of an application. Doubles are compared by their bits.
+     */
+    private static final class Key {
+        final int tier;
+        final int years;
+        final boolean belowMinimumDown;
+        final long principal;
+        final long income;
+        final long debt;
+        final int hash;
+
+        Key(int tier, int years, boolean belowMinimumDown, double principal, double income, double debt) {
+            this.tier = tier;
+            this.years = years;
+            this.belowMinimumDown = belowMinimumDown;
+            this.principal = Double.doubleToLongBits(principal);
+            this.income = Double.doubleToLongBits(income);
+            this.debt = Double.doubleToLongBits(debt);
+            long h = this.principal * 31 + this.income;
+            h = h * 31 + this.debt;
+            h = h * 31 + (tier * 64 + years) * 2 + (belowMinimumDown ? 1 : 0);
+            h *= 0x9E3779B97F4A7C15L;
+            this.hash = (int) (h ^ (h >>> 32));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return hash == k.hash && tier == k.tier && years == k.years && belowMinimumDown == k.belowMinimumDown
+                    && principal == k.principal && income == k.income && debt == k.debt;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
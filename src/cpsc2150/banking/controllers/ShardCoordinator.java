@@ -0,0 +1,585 @@
+package cpsc2150.banking.controllers;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * This class underwrites a file of applications across several worker JVMs, for runs too big for one
+ * heap. It reads the same lines and writes the same output as BatchUnderwriter.
+ *
+ * The coordinator starts each worker as its own process running ShardWorkerApp, which connects back over
+ * the loopback address. The input is cut into shards of shardSize lines as it is read. Each new shard is
+ * queued on the worker with the least work, and each worker is kept a few shards ahead. A worker whose
+ * queue runs dry takes the newest shard queued on the busiest worker, so a worker that falls behind has
+ * its work stolen instead of holding up the run.
+ *
+ * Decisions are written in input order as soon as every shard before them is done. Only a fixed window of
+ * shards is held in memory; reading stops while the oldest unfinished shard holds the window up.
+ *
+ * If a worker dies or its connection breaks, only the shards it had been sent or had queued are handed to
+ * the other workers. The run fails only once every worker is gone. A worker that is alive but slow or hung
+ * keeps its connection, so a shard it was sent more than shardDeadlineMillis ago is also sent to a worker
+ * with nothing else to do, oldest first; whichever answer comes back first is written.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines:
+ *      workers - the number of worker processes
+ *      workerThreads - the number of shards each worker underwrites at once
+ *      shardSize - the number of lines in one shard
+ *      shardDeadlineMillis - how long a sent shard may go unanswered before it is sent again
+ */
+public final class ShardCoordinator {
+    public static final int DEFAULT_SHARD_SIZE = 4096;
+    public static final long DEFAULT_SHARD_DEADLINE_MILLIS = 30000;
+    private static final int CONNECT_TIMEOUT_MILLIS = 60000;
+
+    private final int workers;
+    private final int workerThreads;
+    private final int shardSize;
+    private final long shardDeadlineNanos;
+    private final List<String> jvmOptions;
+
+    /**
+     * Constructor that sets how the run is split up.
+     *
+     * @param workers the number of worker processes
+     * @param workerThreads the number of shards each worker underwrites at once
+     * @param shardSize the number of lines in one shard
+     * @param jvmOptions options for each worker's java command, such as -Xmx
+     * @pre workers > 0 AND workerThreads > 0 AND shardSize > 0 AND jvmOptions != null
+     */
+    public ShardCoordinator(int workers, int workerThreads, int shardSize, List<String> jvmOptions) {
+        this(workers, workerThreads, shardSize, DEFAULT_SHARD_DEADLINE_MILLIS, jvmOptions);
+    }
+
+    /**
+     * Constructor that also sets how long a worker may hold a shard before it is sent to another worker.
+     *
+     * @param workers the number of worker processes
+     * @param workerThreads the number of shards each worker underwrites at once
+     * @param shardSize the number of lines in one shard
+     * @param shardDeadlineMillis how long a sent shard may go unanswered before an idle worker is sent it too
+     * @param jvmOptions options for each worker's java command, such as -Xmx
+     * @pre workers > 0 AND workerThreads > 0 AND shardSize > 0 AND shardDeadlineMillis > 0 AND jvmOptions != null
+     */
+    public ShardCoordinator(int workers, int workerThreads, int shardSize, long shardDeadlineMillis,
+                            List<String> jvmOptions) {
+        this.workers = workers;
+        this.workerThreads = workerThreads;
+        this.shardSize = shardSize;
+        this.shardDeadlineNanos = java.util.concurrent.TimeUnit.MILLISECONDS.toNanos(shardDeadlineMillis);
+        this.jvmOptions = new ArrayList<>(jvmOptions);
+    }
+
+    /**
+     * Constructor with the default shard size and no worker JVM options.
+     *
+     * @param workers the number of worker processes
+     * @param workerThreads the number of shards each worker underwrites at once
+     * @pre workers > 0 AND workerThreads > 0
+     */
+    public ShardCoordinator(int workers, int workerThreads) {
+        this(workers, workerThreads, DEFAULT_SHARD_SIZE, Collections.emptyList());
+    }
+
+    /**
+     * This method underwrites one application file into one decision file.
+     *
+     * @param input the application file
+     * @param output the decision file to create or overwrite
+     * @return the number of rows that were processed
+     * @throws IOException if reading or writing fails, or every worker fails
+     * @pre input exists
+     * @post [output holds what BatchUnderwriter.run(input, output) would write]
+     */
+    public long run(File input, File output) throws IOException {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(input), StandardCharsets.UTF_8), 1 << 16);
+             Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8), 1 << 16)) {
+            return run(in, out);
+        }
+    }
+
+    /**
+     * This method underwrites every application read from in and writes a decision line for each one to out.
+     * A first line that BatchUnderwriter.isHeader() is skipped.
+     *
+     * @param in the application lines
+     * @param out where the decision lines are written
+     * @return the number of rows that were processed
+     * @throws IOException if reading or writing fails, or every worker fails
+     * @pre in != null AND out != null
+     * @post [out holds HEADER followed by one decision line per application, in input order]
+     */
+    public long run(BufferedReader in, Writer out) throws IOException {
+        try (ServerSocket server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+            List<Process> processes = new ArrayList<>();
+            Run run = new Run();
+            try {
+                for (int i = 0; i < workers; i++) {
+                    processes.add(launch(server.getLocalPort()));
+                }
+                Thread acceptor = new Thread(() -> run.accept(server), "shard-accept");
+                acceptor.setDaemon(true);
+                acceptor.start();
+                return run.drive(in, out);
+            } finally {
+                run.finish();
+                for (Process p : processes) {
+                    stop(p);
+                }
+            }
+        }
+    }
+
+    /**
+     * This method starts one worker process with this JVM's java command and class path.
+     */
+    private Process launch(int port) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("cpsc2150.banking.ShardWorkerApp");
+        command.add(Integer.toString(port));
+        command.add(Integer.toString(workerThreads));
+        return new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    private static void stop(Process p) {
+        try {
+            if (!p.waitFor(5, java.util.concurrent.TimeUnit.SECONDS)) {
+                p.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            p.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * This class is one shard of input lines, kept until its decisions are written so it can be sent
+     * again if its worker fails.
+     */
+    private static final class Shard {
+        final long id;
+        final String text;
+
+        Shard(long id, String text) {
+            this.id = id;
+            this.text = text;
+        }
+    }
+
+    /**
+     * This class is the coordinator's side of one worker connection.
+     */
+    private static final class Connection {
+        final Socket socket;
+        final DataOutputStream out;
+        final DataInputStream in;
+        // Shards queued for this worker but not sent, oldest first
+        final ArrayDeque<Shard> queued = new ArrayDeque<>();
+        // Shards sent and not yet answered
+        final Map<Long, Shard> sent = new HashMap<>();
+        // When each shard in sent was sent, or last sent again elsewhere, from System.nanoTime()
+        final Map<Long, Long> sentAt = new HashMap<>();
+        boolean alive = true;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+        }
+
+        int load() {
+            return queued.size() + sent.size();
+        }
+    }
+
+    /**
+     * This class holds the state of one run. Every field is guarded by the Run's monitor.
+     */
+    private final class Run {
+        private final List<Connection> live = new ArrayList<>();
+        // Shards read before any worker connected
+        private final ArrayDeque<Shard> unassigned = new ArrayDeque<>();
+        private final Map<Long, String> done = new HashMap<>();
+        // The most shards sent to one worker and not answered
+        private final int ahead = workerThreads + 1;
+        // The most shards read and not written
+        private final int window = workers * ahead * 2;
+        private long nextRead;
+        private long nextWrite;
+        private boolean inputDone;
+        private boolean accepting = true;
+        private boolean finished;
+        private IOException failure;
+
+        /**
+         * This method reads shards, hands them out, and writes finished shards in order, until every
+         * shard has been written.
+         */
+        long drive(BufferedReader in, Writer out) throws IOException {
+            out.write(BatchUnderwriter.HEADER);
+            out.write('\n');
+
+            String first = in.readLine();
+            //Skips the header if there is one
+            String pendingLine = first != null && BatchUnderwriter.isHeader(first) ? in.readLine() : first;
+            long rows = 0;
+            StringBuilder sb = new StringBuilder();
+
+            for (;;) {
+                List<String> ready = new ArrayList<>();
+                boolean canRead;
+                synchronized (this) {
+                    while (failure == null && !done.containsKey(nextWrite)
+                            && !(!inputDone && nextRead - nextWrite < window)
+                            && !(inputDone && nextWrite == nextRead)) {
+                        waitHere();
+                    }
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    for (String text; (text = done.remove(nextWrite)) != null; nextWrite++) {
+                        ready.add(text);
+                    }
+                    if (inputDone && nextWrite == nextRead && ready.isEmpty()) {
+                        break;
+                    }
+                    canRead = !inputDone && nextRead - nextWrite < window;
+                }
+                for (String text : ready) {
+                    out.write(text);
+                }
+
+                if (canRead) {
+                    //Reads the next shard outside the lock so workers are not held up by the disk
+                    sb.setLength(0);
+                    int count = 0;
+                    while (pendingLine != null && count < shardSize) {
+                        if (!pendingLine.isEmpty()) {
+                            sb.append(pendingLine).append('\n');
+                            count++;
+                        }
+                        pendingLine = in.readLine();
+                    }
+                    rows += count;
+                    synchronized (this) {
+                        if (count > 0) {
+                            deal(new Shard(nextRead++, sb.toString()));
+                        }
+                        if (pendingLine == null) {
+                            inputDone = true;
+                        }
+                        notifyAll();
+                    }
+                }
+            }
+            out.flush();
+            return rows;
+        }
+
+        /**
+         * This method accepts workers until they have all connected, and starts a sender and a receiver
+         * for each one.
+         */
+        void accept(ServerSocket server) {
+            try {
+                for (int i = 0; i < workers; i++) {
+                    Connection c = new Connection(server.accept());
+                    synchronized (this) {
+                        if (finished) {
+                            c.socket.close();
+                            return;
+                        }
+                        live.add(c);
+                        notifyAll();
+                    }
+                    start(() -> send(c), "shard-send-" + i);
+                    start(() -> receive(c), "shard-receive-" + i);
+                }
+            } catch (IOException e) {
+                //A worker that never connects is treated like one that crashed
+            } finally {
+                synchronized (this) {
+                    accepting = false;
+                    checkWorkersLeft();
+                    notifyAll();
+                }
+            }
+        }
+
+        /**
+         * This method sends shards to one worker while it has room for them.
+         */
+        private void send(Connection c) {
+            try {
+                for (;;) {
+                    Shard shard = null;
+                    synchronized (this) {
+                        while (c.alive && !finished) {
+                            if (c.sent.size() < ahead) {
+                                shard = hasWorkFor(c) ? take(c) : overdue(c);
+                                if (shard != null) {
+                                    break;
+                                }
+                            }
+                            //An idle worker wakes up when the next shard held by another worker is due
+                            waitHere(c.sent.size() < ahead ? untilOverdue(c) : 0);
+                        }
+                        if (!c.alive) {
+                            return;
+                        }
+                        if (finished) {
+                            break;
+                        }
+                        c.sent.put(shard.id, shard);
+                        c.sentAt.put(shard.id, System.nanoTime());
+                    }
+                    synchronized (c.out) {
+                        ShardWorker.writeFrame(c.out, shard.id, shard.text);
+                    }
+                }
+                synchronized (c.out) {
+                    c.out.writeLong(ShardWorker.STOP);
+                    c.out.flush();
+                }
+            } catch (IOException e) {
+                crashed(c);
+            }
+        }
+
+        /**
+         * This method collects the answers from one worker.
+         */
+        private void receive(Connection c) {
+            try {
+                for (;;) {
+                    long id = c.in.readLong();
+                    String text = ShardWorker.readText(c.in);
+                    synchronized (this) {
+                        c.sent.remove(id);
+                        c.sentAt.remove(id);
+                        //A shard sent again after a failure may be answered twice; the first answer wins
+                        if (id >= nextWrite && !done.containsKey(id)) {
+                            done.put(id, text);
+                        }
+                        notifyAll();
+                    }
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    if (finished && c.sent.isEmpty()) {
+                        return;
+                    }
+                }
+                crashed(c);
+            }
+        }
+
+        /**
+         * This method hands a failed worker's shards to the others.
+         */
+        private synchronized void crashed(Connection c) {
+            if (!c.alive) {
+                return;
+            }
+            c.alive = false;
+            live.remove(c);
+            try {
+                c.socket.close();
+            } catch (IOException e) {
+                //Already broken
+            }
+            List<Shard> orphans = new ArrayList<>(c.sent.values());
+            orphans.addAll(c.queued);
+            c.sent.clear();
+            c.sentAt.clear();
+            c.queued.clear();
+            //A shard sent again elsewhere may already be answered
+            orphans.removeIf(s -> s.id < nextWrite || done.containsKey(s.id));
+            //Oldest first, since the writer is waiting on the oldest
+            orphans.sort(Comparator.comparingLong(s -> s.id));
+            for (int i = orphans.size() - 1; i >= 0; i--) {
+                Connection to = leastLoaded();
+                if (to == null) {
+                    unassigned.addFirst(orphans.get(i));
+                } else {
+                    to.queued.addFirst(orphans.get(i));
+                }
+            }
+            checkWorkersLeft();
+            notifyAll();
+        }
+
+        /**
+         * This method queues a new shard on the worker with the least work.
+         */
+        private void deal(Shard shard) {
+            Connection to = leastLoaded();
+            if (to == null) {
+                unassigned.addLast(shard);
+            } else {
+                to.queued.addLast(shard);
+            }
+        }
+
+        private Connection leastLoaded() {
+            Connection best = null;
+            for (Connection c : live) {
+                if (best == null || c.load() < best.load()) {
+                    best = c;
+                }
+            }
+            return best;
+        }
+
+        private boolean hasWorkFor(Connection c) {
+            if (!c.queued.isEmpty() || !unassigned.isEmpty()) {
+                return true;
+            }
+            for (Connection other : live) {
+                if (!other.queued.isEmpty()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * This method takes a worker's next shard: its own oldest, then one nobody has, then the newest
+         * shard queued on the busiest worker.
+         *
+         * @pre hasWorkFor(c)
+         */
+        private Shard take(Connection c) {
+            if (!c.queued.isEmpty()) {
+                return c.queued.pollFirst();
+            }
+            if (!unassigned.isEmpty()) {
+                return unassigned.pollFirst();
+            }
+            Connection victim = null;
+            for (Connection other : live) {
+                if (!other.queued.isEmpty() && (victim == null || other.queued.size() > victim.queued.size())) {
+                    victim = other;
+                }
+            }
+            return victim.queued.pollLast();
+        }
+
+        /**
+         * This method finds the oldest shard another worker has held past the deadline, marks it as sent
+         * again now so only one idle worker takes it per deadline, and returns it; null if there is none.
+         */
+        private Shard overdue(Connection c) {
+            long now = System.nanoTime();
+            Connection holder = null;
+            Shard oldest = null;
+            for (Connection other : live) {
+                if (other == c) {
+                    continue;
+                }
+                for (Map.Entry<Long, Long> e : other.sentAt.entrySet()) {
+                    long id = e.getKey();
+                    if (now - e.getValue() >= shardDeadlineNanos && (oldest == null || id < oldest.id)
+                            && id >= nextWrite && !done.containsKey(id) && !c.sent.containsKey(id)) {
+                        holder = other;
+                        oldest = other.sent.get(id);
+                    }
+                }
+            }
+            if (oldest != null) {
+                holder.sentAt.put(oldest.id, now);
+            }
+            return oldest;
+        }
+
+        /**
+         * This method returns how many milliseconds until a shard held by another worker is overdue, or 0
+         * if no other worker holds one that c could be sent.
+         */
+        private long untilOverdue(Connection c) {
+            long now = System.nanoTime();
+            long soonest = Long.MAX_VALUE;
+            for (Connection other : live) {
+                if (other == c) {
+                    continue;
+                }
+                for (Map.Entry<Long, Long> e : other.sentAt.entrySet()) {
+                    long id = e.getKey();
+                    if (id >= nextWrite && !done.containsKey(id) && !c.sent.containsKey(id)) {
+                        soonest = Math.min(soonest, e.getValue() + shardDeadlineNanos - now);
+                    }
+                }
+            }
+            if (soonest == Long.MAX_VALUE) {
+                return 0;
+            }
+            //Never 0, which would wait forever
+            return Math.max(1, java.util.concurrent.TimeUnit.NANOSECONDS.toMillis(soonest) + 1);
+        }
+
+        private void checkWorkersLeft() {
+            if (live.isEmpty() && !accepting && failure == null && !finished) {
+                failure = new IOException("every shard worker failed");
+            }
+        }
+
+        /**
+         * This method tells the senders to stop their workers and closes any connection left.
+         */
+        void finish() {
+            List<Connection> open;
+            synchronized (this) {
+                finished = true;
+                open = new ArrayList<>(live);
+                notifyAll();
+            }
+            if (failure != null) {
+                for (Connection c : open) {
+                    try {
+                        c.socket.close();
+                    } catch (IOException e) {
+                        //Already broken
+                    }
+                }
+            }
+        }
+
+        private void waitHere() {
+            waitHere(0);
+        }
+
+        /**
+         * This method waits for a change, or at most millis milliseconds; 0 waits until a change.
+         */
+        private void waitHere(long millis) {
+            try {
+                wait(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (failure == null) {
+                    failure = new InterruptedIOException("shard run interrupted");
+                }
+            }
+        }
+
+        private void start(Runnable task, String name) {
+            Thread t = new Thread(task, name);
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+}
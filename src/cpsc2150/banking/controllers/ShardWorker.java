@@ -0,0 +1,115 @@
+package cpsc2150.banking.controllers;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This class is the worker side of a ShardCoordinator run. It connects to the coordinator on localhost,
+ * underwrites each shard of application lines it is sent with the same rules as BatchUnderwriter, and
+ * sends back the decision lines under the shard's id. Shards are underwritten on a small pool, so the
+ * answers may go back in a different order than the shards came in.
+ *
+ * Frame, both ways: long shard id, int length, length bytes of UTF-8 lines. An id of STOP ends the run.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ */
+public final class ShardWorker {
+    public static final long STOP = -1;
+
+    private ShardWorker() {
+    }
+
+    /**
+     * This method works for a coordinator until it is told to stop.
+     *
+     * @param port the coordinator's port on the loopback address
+     * @param threads the number of shards to underwrite at once
+     * @return the number of shards underwritten
+     * @throws IOException if the connection to the coordinator fails
+     * @pre threads > 0
+     */
+    public static long run(int port, int threads) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long shards = 0;
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            List<Future<?>> pending = new ArrayList<>();
+
+            for (;;) {
+                long id = in.readLong();
+                if (id == STOP) {
+                    break;
+                }
+                String text = readText(in);
+                pending.add(pool.submit(() -> {
+                    String result = BatchUnderwriter.underwriteChunk(lines(text));
+                    synchronized (out) {
+                        writeFrame(out, id, result);
+                    }
+                    return null;
+                }));
+                pending.removeIf(Future::isDone);
+                shards++;
+            }
+            for (Future<?> f : pending) {
+                await(f);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return shards;
+    }
+
+    /**
+     * This method writes one frame and flushes it.
+     */
+    static void writeFrame(DataOutputStream out, long id, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeLong(id);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.flush();
+    }
+
+    /**
+     * This method reads the text of a frame whose id has already been read.
+     */
+    static String readText(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * This method splits a shard back into its lines.
+     */
+    private static List<String> lines(String text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', start)) {
+            lines.add(text.substring(start, i));
+            start = i + 1;
+        }
+        if (start < text.length()) {
+            lines.add(text.substring(start));
+        }
+        return lines;
+    }
+
+    private static void await(Future<?> f) throws IOException {
+        try {
+            f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("worker interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("shard failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package cpsc2150.banking.controllers;
+import cpsc2150.banking.models.*;
+import cpsc2150.banking.metrics.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * This class underwrites mortgage applications without a view: it checks an ApplicationRequest with the
+ * same rules MortgageController uses, prices it with Customer and Mortgage, and returns a Decision.
+ * It keeps no state between calls other than an optional QuoteCache, so one engine can be shared by any
+ * number of threads.
+ * The check methods return the message the console shows for a bad answer, or null for a good one.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ */
+public class UnderwritingEngine {
+    private final QuoteCache cache;
+    private final DecisionLog log;
+
+    /**
+     * Constructor for an engine that prices every application.
+     */
+    public UnderwritingEngine() {
+        this(null, null);
+    }
+
+    /**
+     * Constructor for an engine that answers repeated applications from a cache.
+     * @param cache the cache, or null to price every application
+     */
+    public UnderwritingEngine(QuoteCache cache) {
+        this(cache, null);
+    }
+
+    /**
+     * Constructor for an engine that can cache decisions and records every decision in an audit log.
+     * underwrite does not return a decision until its record is durable.
+     * @param cache the cache, or null to price every application
+     * @param log the audit log, or null to keep no audit trail
+     */
+    public UnderwritingEngine(QuoteCache cache, DecisionLog log) {
+        this.cache = cache;
+        this.log = log;
+    }
+
+    /**
+     * @return the cache, or null if this engine has none
+     */
+    public QuoteCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @return the audit log, or null if this engine has none
+     */
+    public DecisionLog getLog() {
+        return log;
+    }
+
+    /**
+     * This method underwrites one application.
+     *
+     * @param request the application
+     * @return the decision, with every validation error if the application is not valid
+     * @throws UncheckedIOException if there is an audit log and the decision could not be recorded
+     * @pre request != null
+     * @post [underwrite.isValid() iff every check method returns null for request] AND
+     *       [if valid, the pricing matches new Mortgage(houseCost, downPayment, years, customer)]
+     */
+    public Decision underwrite(ApplicationRequest request) {
+        Decision decision = decide(request);
+        if (log != null) {
+            record(request, decision);
+        }
+        return decision;
+    }
+
+    /**
+     * This method decides one application like underwrite() but never records it in the audit log, for
+     * re-driving decisions that were already logged.
+     *
+     * @param request the application
+     * @return the decision, with every validation error if the application is not valid
+     * @pre request != null
+     * @post [decide is the decision underwrite would return] AND [nothing is appended to the audit log]
+     */
+    Decision decide(ApplicationRequest request) {
+        List<String> errors = validate(request);
+        if (!errors.isEmpty()) {
+            return new Decision(errors);
+        }
+        return cache == null ? price(request) : cache.get(request, UnderwritingEngine::price);
+    }
+
+    /**
+     * This method waits for a decision to be durable in the audit log.
+     */
+    private void record(ApplicationRequest request, Decision decision) {
+        try {
+            log.appendAndWait(request, decision);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("interrupted while logging a decision"));
+        }
+    }
+
+    /**
+     * This method prices a valid application with Customer and Mortgage.
+     */
+    private static Decision price(ApplicationRequest request) {
+        long start = UnderwritingMetrics.start();
+        ICustomer customer = new Customer(request.getMonthlyDebt(), request.getYearlyIncome(), request.getCreditScore(), request.getName());
+        IMortgage mortgage = new Mortgage(request.getHouseCost(), request.getDownPayment(), request.getYears(), customer);
+        UnderwritingMetrics.record(Stage.PRICING, start);
+        start = UnderwritingMetrics.start();
+        boolean approved = mortgage.loanApproved();
+        UnderwritingMetrics.record(Stage.APPROVAL, start);
+        //The ratio the Mortgage was approved with, which is worked out in cents under MoneyArithmetic.FIXED_POINT
+        return new Decision(approved, mortgage.getRate(), mortgage.getPayment(), mortgage.getDebtToIncomeRatio(),
+                mortgage.getPrincipal(), mortgage.getYears());
+    }
+
+    /**
+     * This method checks every field of an application.
+     *
+     * @param request the application
+     * @return the messages for every bad field, in the order the console asks for them
+     * @post [validate is empty iff every check method returns null for request]
+     */
+    public static List<String> validate(ApplicationRequest request) {
+        long start = UnderwritingMetrics.start();
+        List<String> errors = Collections.emptyList();
+        errors = add(errors, checkIncome(request.getYearlyIncome()));
+        errors = add(errors, checkDebt(request.getMonthlyDebt()));
+        errors = add(errors, checkCreditScore(request.getCreditScore()));
+        errors = add(errors, checkHouseCost(request.getHouseCost()));
+        errors = add(errors, checkDownPayment(request.getDownPayment(), request.getHouseCost()));
+        errors = add(errors, checkYears(request.getYears()));
+        UnderwritingMetrics.record(Stage.VALIDATION, start);
+        return errors;
+    }
+
+    /**
+     * @return null if yearlyIncome is acceptable, otherwise the message to show
+     */
+    public static String checkIncome(double yearlyIncome) {
+        return yearlyIncome < 0 ? "Income must be greater than 0." : null;
+    }
+
+    /**
+     * @return null if monthlyDebt is acceptable, otherwise the message to show
+     */
+    public static String checkDebt(double monthlyDebt) {
+        return monthlyDebt < 0 ? "Debt must be greater than or equal to 0." : null;
+    }
+
+    /**
+     * @return null if creditScore is acceptable, otherwise the message to show
+     */
+    public static String checkCreditScore(int creditScore) {
+        return creditScore < 0 || creditScore > ICustomer.MAX_CREDIT_SCORE
+                ? "Credit Score must be greater than 0 and less than 850" : null;
+    }
+
+    /**
+     * @return null if houseCost is acceptable, otherwise the message to show
+     */
+    public static String checkHouseCost(double houseCost) {
+        return houseCost < 0 ? "Cost must be greater than 0." : null;
+    }
+
+    /**
+     * @return null if downPayment is acceptable for a house of houseCost, otherwise the message to show
+     */
+    public static String checkDownPayment(double downPayment, double houseCost) {
+        return downPayment < 0 || downPayment >= houseCost
+                ? "Down Payment must be greater than 0 and less than the cost of the house." : null;
+    }
+
+    /**
+     * @return null if years is acceptable, otherwise the message to show
+     */
+    public static String checkYears(int years) {
+        return years < 0 ? "Years must be greater than 0." : null;
+    }
+
+    /**
+     * This method adds a message to a list that starts out as the shared empty list, so valid
+     * applications never allocate one.
+     */
+    private static List<String> add(List<String> errors, String error) {
+        if (error == null) {
+            return errors;
+        }
+        if (errors.isEmpty()) {
+            errors = new ArrayList<>(2);
+        }
+        errors.add(error);
+        return errors;
+    }
+}
@@ -0,0 +1,581 @@
+package cpsc2150.banking.controllers;
+import cpsc2150.banking.models.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This class generates synthetic mortgage applications for load tests. Every field is drawn from its own
+ * Distribution, and row n is always drawn from a generator seeded with the seed and n alone. So a file
+ * depends only on the seed, the distributions and the row count: the same every run, with any number of
+ * threads, and any row can be generated again without generating the ones before it.
+ *
+ * The down payment is drawn as a percent of the house cost. A fraction of rows can be made invalid on
+ * purpose, with one field out of range, to exercise the validation rules.
+ *
+ * Files come in two formats, both written in blocks by a pool of threads:
+ *
+ *      CSV     the BatchUnderwriter input format, with a header line
+ *      binary  a HEADER_BYTES header (magic, version, record size, row count, seed) followed by
+ *              RECORD_BYTES records: double yearly income, double monthly debt, int credit score,
+ *              double house cost, double down payment, int years; names are "applicant" + row
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines:
+ *      seed - the seed every row is drawn from
+ *      income, monthlyDebt, creditScore, houseCost, percentDown, years - the distribution of each field
+ *      invalidFraction - the fraction of rows with one field out of range
+ */
+public final class WorkloadGenerator {
+    public static final String HEADER = "name,yearlyIncome,monthlyDebt,creditScore,houseCost,downPayment,years";
+    public static final int MAGIC = 0x41505053;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 32;
+    public static final int RECORD_BYTES = 40;
+    static final int BLOCK_ROWS = 1 << 15;
+
+    private final long seed;
+    private final Distribution income;
+    private final Distribution monthlyDebt;
+    private final Distribution creditScore;
+    private final Distribution houseCost;
+    private final Distribution percentDown;
+    private final Distribution years;
+    private final double invalidFraction;
+
+    /**
+     * This interface draws one value of a field from a random generator.
+     *
+     * Distributions can also be written as text, for properties files:
+     *      constant:v
+     *      uniform:min:max
+     *      normal:mean:standardDeviation
+     *      lognormal:median:sigma
+     *      piecewise:b0,b1,...,bn:w1,...,wn   uniform within [b(i-1), bi), picked with weight wi
+     *      choice:v1,...,vn:w1,...,wn         vi with weight wi
+     */
+    public interface Distribution {
+        /**
+         * @param random the generator to draw from
+         * @return one value
+         */
+        double sample(SplittableRandom random);
+
+        static Distribution constant(double value) {
+            return random -> value;
+        }
+
+        static Distribution uniform(double min, double max) {
+            return random -> min + (max - min) * random.nextDouble();
+        }
+
+        static Distribution normal(double mean, double standardDeviation) {
+            return random -> mean + standardDeviation * gaussian(random);
+        }
+
+        static Distribution logNormal(double median, double sigma) {
+            return random -> median * Math.exp(sigma * gaussian(random));
+        }
+
+        /**
+         * @pre bounds.length = weights.length + 1 AND bounds ascending AND every weight >= 0
+         */
+        static Distribution piecewise(double[] bounds, double[] weights) {
+            double[] cumulative = cumulative(weights);
+            double[] b = bounds.clone();
+            return random -> {
+                int i = pick(cumulative, random.nextDouble());
+                return b[i] + (b[i + 1] - b[i]) * random.nextDouble();
+            };
+        }
+
+        /**
+         * @pre values.length = weights.length AND every weight >= 0
+         */
+        static Distribution choice(double[] values, double[] weights) {
+            double[] cumulative = cumulative(weights);
+            double[] v = values.clone();
+            return random -> v[pick(cumulative, random.nextDouble())];
+        }
+
+        /**
+         * This method reads a distribution written as text.
+         *
+         * @param text the distribution, such as lognormal:72000:0.55
+         * @return the distribution
+         * @throws IllegalArgumentException if text is not a distribution
+         */
+        static Distribution parse(String text) {
+            String[] f = text.trim().split(":");
+            try {
+                switch (f[0].toLowerCase(Locale.ROOT)) {
+                    case "constant": return constant(Double.parseDouble(f[1]));
+                    case "uniform": return uniform(Double.parseDouble(f[1]), Double.parseDouble(f[2]));
+                    case "normal": return normal(Double.parseDouble(f[1]), Double.parseDouble(f[2]));
+                    case "lognormal": return logNormal(Double.parseDouble(f[1]), Double.parseDouble(f[2]));
+                    case "piecewise": {
+                        double[] bounds = list(f[1]);
+                        double[] weights = list(f[2]);
+                        if (bounds.length != weights.length + 1) {
+                            throw new IllegalArgumentException("piecewise needs one more bound than weights: " + text);
+                        }
+                        return piecewise(bounds, weights);
+                    }
+                    case "choice": {
+                        double[] values = list(f[1]);
+                        double[] weights = list(f[2]);
+                        if (values.length != weights.length) {
+                            throw new IllegalArgumentException("choice needs one weight per value: " + text);
+                        }
+                        return choice(values, weights);
+                    }
+                    default: throw new IllegalArgumentException("unknown distribution: " + text);
+                }
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("bad distribution: " + text, e);
+            }
+        }
+    }
+
+    /**
+     * Constructor for a generator.
+     *
+     * @param seed the seed every row is drawn from
+     * @param income yearly income, in dollars
+     * @param monthlyDebt monthly debt payments, in dollars
+     * @param creditScore credit score, rounded down and kept within 0 and MAX_CREDIT_SCORE
+     * @param houseCost house cost, in dollars
+     * @param percentDown down payment as a fraction of the house cost, kept within 0 and 1
+     * @param years term in years, rounded and kept within MIN_YEARS and MAX_YEARS
+     * @param invalidFraction the fraction of rows with one field out of range
+     * @pre every distribution != null AND 0 <= invalidFraction <= 1
+     */
+    public WorkloadGenerator(long seed, Distribution income, Distribution monthlyDebt, Distribution creditScore,
+                             Distribution houseCost, Distribution percentDown, Distribution years,
+                             double invalidFraction) {
+        this.seed = seed;
+        this.income = income;
+        this.monthlyDebt = monthlyDebt;
+        this.creditScore = creditScore;
+        this.houseCost = houseCost;
+        this.percentDown = percentDown;
+        this.years = years;
+        this.invalidFraction = invalidFraction;
+    }
+
+    /**
+     * This method returns a generator shaped like a typical book: incomes and house costs spread the way
+     * they usually are, most scores fair or better, and most loans 30 years.
+     *
+     * @param seed the seed every row is drawn from
+     * @return the generator
+     */
+    public static WorkloadGenerator defaults(long seed) {
+        return new WorkloadGenerator(seed,
+                Distribution.logNormal(72000, 0.55),
+                Distribution.logNormal(450, 0.8),
+                //One range per credit tier, up to and including MAX_CREDIT_SCORE
+                Distribution.piecewise(new double[] {0, IMortgage.BADCREDIT, IMortgage.FAIRCREDIT, IMortgage.GOODCREDIT,
+                        IMortgage.GREATCREDIT, ICustomer.MAX_CREDIT_SCORE + 1}, new double[] {.06, .12, .28, .24, .30}),
+                Distribution.logNormal(320000, 0.45),
+                Distribution.piecewise(new double[] {0, .05, .10, .20, .30, .60}, new double[] {.10, .20, .20, .35, .15}),
+                Distribution.choice(new double[] {IMortgage.MIN_YEARS, 20, IMortgage.MAX_YEARS}, new double[] {.25, .10, .65}),
+                0);
+    }
+
+    /**
+     * This method builds a generator from properties. Keys that are missing keep their defaults() value.
+     * Keys: seed, income, monthlyDebt, creditScore, houseCost, percentDown, years, invalidFraction.
+     *
+     * @param p the properties
+     * @return the generator they describe
+     * @throws IllegalArgumentException if a value cannot be parsed
+     */
+    public static WorkloadGenerator fromProperties(Properties p) {
+        WorkloadGenerator d;
+        try {
+            d = defaults(Long.parseLong(p.getProperty("seed", "0").trim()));
+            return new WorkloadGenerator(d.seed,
+                    distribution(p, "income", d.income),
+                    distribution(p, "monthlyDebt", d.monthlyDebt),
+                    distribution(p, "creditScore", d.creditScore),
+                    distribution(p, "houseCost", d.houseCost),
+                    distribution(p, "percentDown", d.percentDown),
+                    distribution(p, "years", d.years),
+                    Double.parseDouble(p.getProperty("invalidFraction", "0").trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bad workload value: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * This method reads a generator from a properties file.
+     *
+     * @param file the properties file
+     * @return the generator described by the file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a value cannot be parsed
+     */
+    public static WorkloadGenerator load(Path file) throws IOException {
+        Properties p = new Properties();
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            p.load(in);
+        }
+        return fromProperties(p);
+    }
+
+    /**
+     * @return the seed every row is drawn from
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * This method generates one row.
+     *
+     * @param row the row number
+     * @return the application in that row
+     * @pre row >= 0
+     */
+    public ApplicationRequest request(long row) {
+        double[] r = new double[6];
+        draw(row, r);
+        return new ApplicationRequest("applicant" + row, r[0], r[1], (int) r[2], r[3], r[4], (int) r[5]);
+    }
+
+    /**
+     * This method writes rows [0, rows) as a CSV file.
+     *
+     * @param file the file to create or overwrite
+     * @param rows the number of rows
+     * @param threads the number of threads generating blocks
+     * @throws IOException if the file cannot be written
+     * @pre rows >= 0 AND threads > 0
+     * @post [file holds HEADER and then one line per row, the same for any threads]
+     */
+    public void writeCsv(Path file, long rows, int threads) throws IOException {
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, ByteBuffer.wrap((HEADER + "\n").getBytes(StandardCharsets.US_ASCII)), -1);
+            //Lines are not all the same length, so blocks are written in order by this thread
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            ArrayDeque<Future<ByteBuffer>> inFlight = new ArrayDeque<>();
+            try {
+                for (long from = 0; from < rows; from += BLOCK_ROWS) {
+                    long start = from;
+                    int count = (int) Math.min(BLOCK_ROWS, rows - from);
+                    inFlight.addLast(pool.submit(() -> csvBlock(start, count)));
+                    if (inFlight.size() >= threads * 2) {
+                        writeFully(out, await(inFlight.removeFirst()), -1);
+                    }
+                }
+                while (!inFlight.isEmpty()) {
+                    writeFully(out, await(inFlight.removeFirst()), -1);
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * This method writes rows [0, rows) as a binary file.
+     *
+     * @param file the file to create or overwrite
+     * @param rows the number of rows
+     * @param threads the number of threads generating and writing blocks
+     * @throws IOException if the file cannot be written
+     * @pre rows >= 0 AND threads > 0
+     * @post [file holds the header and one RECORD_BYTES record per row, the same for any threads]
+     */
+    public void writeBinary(Path file, long rows, int threads) throws IOException {
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_BYTES).putInt(0).putLong(rows).putLong(seed).flip();
+            writeFully(out, header, 0);
+            //Records are all the same size, so each block is written straight to its place
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            ArrayDeque<Future<ByteBuffer>> inFlight = new ArrayDeque<>();
+            try {
+                for (long from = 0; from < rows; from += BLOCK_ROWS) {
+                    long start = from;
+                    int count = (int) Math.min(BLOCK_ROWS, rows - from);
+                    inFlight.addLast(pool.submit(() -> {
+                        ByteBuffer block = binaryBlock(start, count);
+                        writeFully(out, block, HEADER_BYTES + start * RECORD_BYTES);
+                        return block;
+                    }));
+                    if (inFlight.size() >= threads * 2) {
+                        await(inFlight.removeFirst());
+                    }
+                }
+                while (!inFlight.isEmpty()) {
+                    await(inFlight.removeFirst());
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * This method reads rows of a binary file into columns, ready for MortgageColumns.evaluate().
+     *
+     * @param file the binary file
+     * @param from the first row to read
+     * @param count the number of rows to read
+     * @return the rows, in order
+     * @throws IOException if the file cannot be read, is not a binary workload file, or has too few rows
+     * @pre from >= 0 AND count >= 0
+     */
+    public static MortgageColumns readColumns(Path file, long from, int count) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(in, header, 0);
+            header.flip();
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != RECORD_BYTES) {
+                throw new IOException(file + " is not a binary workload file");
+            }
+            if (from + count > header.getLong(16)) {
+                throw new IOException(file + " has " + header.getLong(16) + " rows, not " + (from + count));
+            }
+            MortgageColumns columns = new MortgageColumns(count);
+            ByteBuffer block = ByteBuffer.allocate(BLOCK_ROWS * RECORD_BYTES);
+            for (int done = 0; done < count; ) {
+                int n = Math.min(BLOCK_ROWS, count - done);
+                block.clear().limit(n * RECORD_BYTES);
+                readFully(in, block, HEADER_BYTES + (from + done) * RECORD_BYTES);
+                block.flip();
+                for (int i = 0; i < n; i++) {
+                    columns.set(done + i, block.getDouble(), block.getDouble(), block.getInt(), block.getDouble(),
+                            block.getDouble(), block.getInt());
+                }
+                done += n;
+            }
+            return columns;
+        }
+    }
+
+    /**
+     * This method draws row n's fields into r: income, debt, score, house cost, down payment, years.
+     */
+    private void draw(long row, double[] r) {
+        SplittableRandom random = new SplittableRandom(seed ^ (row * 0x9E3779B97F4A7C15L));
+        double cost = Math.max(1, Math.rint(houseCost.sample(random) * 100) / 100);
+        r[0] = Math.max(0, Math.rint(income.sample(random) * 100) / 100);
+        r[1] = Math.max(0, Math.rint(monthlyDebt.sample(random) * 100) / 100);
+        r[2] = Math.max(0, Math.min(ICustomer.MAX_CREDIT_SCORE, Math.floor(creditScore.sample(random))));
+        r[3] = cost;
+        double down = Math.max(0, Math.min(1, percentDown.sample(random)));
+        r[4] = Math.min(Math.rint(cost * down * 100) / 100, cost - 1);
+        r[5] = Math.max(IMortgage.MIN_YEARS, Math.min(IMortgage.MAX_YEARS, Math.rint(years.sample(random))));
+
+        if (invalidFraction > 0 && random.nextDouble() < invalidFraction) {
+            //Breaks one field, picked evenly, the way a bad answer at the console would
+            switch (random.nextInt(6)) {
+                case 0: r[0] = -r[0] - 1; break;
+                case 1: r[1] = -r[1] - 1; break;
+                case 2: r[2] = ICustomer.MAX_CREDIT_SCORE + 1 + random.nextInt(100); break;
+                case 3: r[3] = -r[3]; break;
+                case 4: r[4] = cost + r[4]; break;
+                default: r[5] = -r[5]; break;
+            }
+        }
+    }
+
+    private ByteBuffer csvBlock(long from, int count) {
+        Ascii out = new Ascii(count * 72);
+        double[] r = new double[6];
+        for (int i = 0; i < count; i++) {
+            long row = from + i;
+            draw(row, r);
+            out.text("applicant").number(row).comma()
+                    .cents(r[0]).comma()
+                    .cents(r[1]).comma()
+                    .number((long) r[2]).comma()
+                    .cents(r[3]).comma()
+                    .cents(r[4]).comma()
+                    .number((long) r[5]).newline();
+        }
+        return out.buffer();
+    }
+
+    private ByteBuffer binaryBlock(long from, int count) {
+        ByteBuffer out = ByteBuffer.allocate(count * RECORD_BYTES);
+        double[] r = new double[6];
+        for (int i = 0; i < count; i++) {
+            draw(from + i, r);
+            out.putDouble(r[0]).putDouble(r[1]).putInt((int) r[2]).putDouble(r[3]).putDouble(r[4]).putInt((int) r[5]);
+        }
+        out.flip();
+        return out;
+    }
+
+    /**
+     * This method writes a whole buffer, at a position or, if position < 0, at the end of what was written.
+     */
+    private static void writeFully(FileChannel out, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (position < 0) {
+                out.write(buffer);
+            } else {
+                position += out.write(buffer, position);
+            }
+        }
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = in.read(buffer, position);
+            if (n < 0) {
+                throw new EOFException("workload file is cut short");
+            }
+            position += n;
+        }
+    }
+
+    private static ByteBuffer await(Future<ByteBuffer> f) throws IOException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("workload generation interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("workload block failed", e.getCause());
+        }
+    }
+
+    private static Distribution distribution(Properties p, String key, Distribution fallback) {
+        String value = p.getProperty(key);
+        return value == null ? fallback : Distribution.parse(value);
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        //Box-Muller, so the draw depends only on the generator it is given
+        double u = 1 - random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    private static double[] cumulative(double[] weights) {
+        double[] c = new double[weights.length];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            total += weights[i];
+            c[i] = total;
+        }
+        for (int i = 0; i < c.length; i++) {
+            c[i] /= total;
+        }
+        return c;
+    }
+
+    private static int pick(double[] cumulative, double u) {
+        for (int i = 0; i < cumulative.length - 1; i++) {
+            if (u < cumulative[i]) {
+                return i;
+            }
+        }
+        return cumulative.length - 1;
+    }
+
+    private static double[] list(String text) {
+        String[] parts = text.split(",");
+        double[] values = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Double.parseDouble(parts[i].trim());
+        }
+        return values;
+    }
+
+    /**
+     * This class appends ASCII text to a byte array without going through String or a charset encoder.
+     */
+    private static final class Ascii {
+        private byte[] bytes;
+        private int length;
+
+        Ascii(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        Ascii text(String s) {
+            ensure(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                bytes[length++] = (byte) s.charAt(i);
+            }
+            return this;
+        }
+
+        Ascii number(long n) {
+            ensure(20);
+            if (n < 0) {
+                bytes[length++] = '-';
+                n = -n;
+            }
+            int start = length;
+            do {
+                bytes[length++] = (byte) ('0' + n % 10);
+                n /= 10;
+            } while (n != 0);
+            //Digits were written lowest first
+            for (int i = start, j = length - 1; i < j; i++, j--) {
+                byte b = bytes[i];
+                bytes[i] = bytes[j];
+                bytes[j] = b;
+            }
+            return this;
+        }
+
+        /**
+         * This method writes a dollar amount that is already rounded to cents, such as 1234.5 as 1234.50.
+         */
+        Ascii cents(double amount) {
+            long c = Math.round(amount * 100);
+            if (c < 0) {
+                ensure(1);
+                bytes[length++] = '-';
+                c = -c;
+            }
+            number(c / 100);
+            ensure(3);
+            bytes[length++] = '.';
+            bytes[length++] = (byte) ('0' + (c % 100) / 10);
+            bytes[length++] = (byte) ('0' + c % 10);
+            return this;
+        }
+
+        Ascii comma() {
+            ensure(1);
+            bytes[length++] = ',';
+            return this;
+        }
+
+        Ascii newline() {
+            ensure(1);
+            bytes[length++] = '\n';
+            return this;
+        }
+
+        ByteBuffer buffer() {
+            return ByteBuffer.wrap(bytes, 0, length);
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+    }
+}
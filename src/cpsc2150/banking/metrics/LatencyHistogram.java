@@ -0,0 +1,135 @@
+package cpsc2150.banking.metrics;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * This class counts latencies in log-linear buckets: every power of two is split into SUB_BUCKETS
+ * equal buckets, so any value is stored within about 3% of its true size, from 1 nanosecond up to
+ * Long.MAX_VALUE, in a fixed array. Recording is one atomic increment and never allocates or locks,
+ * so many threads can record at the same time.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines:
+ *      Count: Z - how many values have been recorded
+ *      Max: Z - the largest value recorded
+ *
+ * @invariant 0 <= Count AND [counts[i] is the number of recorded values in bucket i]
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * This method records one value.
+     *
+     * @param value the value, usually in nanoseconds; negative values are counted as 0
+     * @post Count = #Count + 1 AND Max = max(#Max, value)
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucket(value));
+        total.increment();
+        sum.add(value);
+        long m = max.get();
+        while (value > m && !max.compareAndSet(m, value)) {
+            m = max.get();
+        }
+    }
+
+    /**
+     * This method returns how many values have been recorded.
+     * @return Count
+     */
+    public long getCount() {
+        return total.sum();
+    }
+
+    /**
+     * This method returns the largest value recorded.
+     * @return Max, or 0 if nothing has been recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * This method returns the mean of the recorded values.
+     * @return the mean, or 0 if nothing has been recorded
+     */
+    public double getMean() {
+        long n = total.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * This method returns a value at a percentile, to within the bucket precision.
+     *
+     * @param percentile the percentile, for example 99.9
+     * @return the upper end of the bucket holding that percentile, or 0 if nothing has been recorded
+     * @pre 0 <= percentile <= 100
+     */
+    public long getValueAtPercentile(double percentile) {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            n += counts.get(i);
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * This method forgets every recorded value.
+     * @post Count = 0 AND Max = 0
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    /**
+     * This method finds the bucket for a value.
+     */
+    static int bucket(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * This method returns the largest value that falls in a bucket.
+     */
+    static long upperBound(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long mantissa = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
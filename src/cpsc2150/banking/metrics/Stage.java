@@ -0,0 +1,15 @@
+package cpsc2150.banking.metrics;
+
+/**
+ * This enum names the parts of underwriting that are timed. Each is timed once per request by the
+ * controllers, never inside the models.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ */
+public enum Stage {
+    VALIDATION,
+    PRICING,
+    APPROVAL,
+    RENDERING
+}
@@ -0,0 +1,89 @@
+package cpsc2150.banking.metrics;
+
+/**
+ * This class holds the latency histogram of one Stage and publishes it through JMX.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines
+ *      stage - the stage being timed
+ *      since - when counting started, from System.nanoTime()
+ */
+public class StageMetrics implements StageMetricsMBean {
+    private final Stage stage;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private volatile long since = System.nanoTime();
+
+    /**
+     * Constructor for the metrics of one stage.
+     * @param stage the stage being timed
+     */
+    public StageMetrics(Stage stage) {
+        this.stage = stage;
+    }
+
+    /**
+     * This method records one run of the stage. It never locks or allocates.
+     * @param nanos how long the run took
+     */
+    public void record(long nanos) {
+        histogram.record(nanos);
+    }
+
+    /**
+     * @return the stage being timed
+     */
+    public Stage getStage() {
+        return stage;
+    }
+
+    /**
+     * @return the histogram behind these metrics
+     */
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    @Override
+    public long getCount() {
+        return histogram.getCount();
+    }
+
+    @Override
+    public double getThroughputPerSecond() {
+        double seconds = (System.nanoTime() - since) / 1e9;
+        return seconds <= 0 ? 0 : histogram.getCount() / seconds;
+    }
+
+    @Override
+    public double getMeanNanos() {
+        return histogram.getMean();
+    }
+
+    @Override
+    public long getP50Nanos() {
+        return histogram.getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getP99Nanos() {
+        return histogram.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getP999Nanos() {
+        return histogram.getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public long getMaxNanos() {
+        return histogram.getMax();
+    }
+
+    @Override
+    public void reset() {
+        histogram.reset();
+        since = System.nanoTime();
+    }
+}
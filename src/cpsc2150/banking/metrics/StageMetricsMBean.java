@@ -0,0 +1,50 @@
+package cpsc2150.banking.metrics;
+
+/**
+ * This interface is what JMX shows for one timed Stage. Times are in nanoseconds.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ */
+public interface StageMetricsMBean {
+
+    /**
+     * @return the number of times the stage has run since the last reset
+     */
+    long getCount();
+
+    /**
+     * @return the number of times per second the stage has run since the last reset
+     */
+    double getThroughputPerSecond();
+
+    /**
+     * @return the mean time the stage took
+     */
+    double getMeanNanos();
+
+    /**
+     * @return the median time the stage took
+     */
+    long getP50Nanos();
+
+    /**
+     * @return the 99th percentile time the stage took
+     */
+    long getP99Nanos();
+
+    /**
+     * @return the 99.9th percentile time the stage took
+     */
+    long getP999Nanos();
+
+    /**
+     * @return the longest time the stage took
+     */
+    long getMaxNanos();
+
+    /**
+     * This method forgets every recorded time and restarts the throughput clock.
+     */
+    void reset();
+}
@@ -0,0 +1,93 @@
+package cpsc2150.banking.metrics;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * This class times the stages of underwriting. Code being timed calls start() before the stage and
+ * record(stage, start) after it. Both are a System.nanoTime() call and, for record, a few atomic adds
+ * that every thread shares: nothing is locked or allocated, but it still costs more than a cheap stage,
+ * so stages are timed once per request in UnderwritingEngine and MortgageController, not in the models.
+ *
+ * Metrics are off unless the JVM runs with -Dbanking.metrics=true; while off every call is a no-op the
+ * JIT removes and no MBean server is started. When on, each stage is published as the MBean
+ * cpsc2150.banking:type=Latency,stage=NAME the first time this class is used.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ */
+public final class UnderwritingMetrics {
+    public static final boolean ENABLED = Boolean.getBoolean("banking.metrics");
+
+    private static final StageMetrics[] STAGES = new StageMetrics[Stage.values().length];
+    // Why stages could not be published; monitoring is optional, so the app decides whether to report it
+    private static final List<JMException> PUBLISH_FAILURES = new ArrayList<>();
+
+    static {
+        for (Stage stage : Stage.values()) {
+            STAGES[stage.ordinal()] = new StageMetrics(stage);
+        }
+        if (ENABLED) {
+            register();
+        }
+    }
+
+    private UnderwritingMetrics() {}
+
+    /**
+     * This method marks the start of a stage.
+     * @return the time to pass to record, or 0 if metrics are off
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * This method records the end of a stage.
+     * @param stage the stage that finished
+     * @param start the value start() returned when the stage began
+     */
+    public static void record(Stage stage, long start) {
+        if (ENABLED) {
+            STAGES[stage.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * This method returns the metrics for one stage.
+     * @param stage the stage
+     * @return its metrics
+     */
+    public static StageMetrics get(Stage stage) {
+        return STAGES[stage.ordinal()];
+    }
+
+    /**
+     * This method returns why stages could not be published as MBeans. Underwriting carries on without
+     * them, so nothing is printed here; an app can report these if monitoring matters to it.
+     * @return the failures, empty if every stage was published or metrics are off
+     */
+    public static List<JMException> getPublishFailures() {
+        return Collections.unmodifiableList(PUBLISH_FAILURES);
+    }
+
+    /**
+     * This method publishes every stage with the platform MBean server. Stages that are already
+     * published are left alone, and a stage that cannot be published is added to the publish failures.
+     */
+    private static void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (StageMetrics metrics : STAGES) {
+            try {
+                ObjectName name = new ObjectName("cpsc2150.banking:type=Latency,stage=" + metrics.getStage().name());
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(metrics, name);
+                }
+            } catch (JMException e) {
+                //Monitoring is optional; underwriting carries on without it
+                PUBLISH_FAILURES.add(e);
+            }
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package cpsc2150.banking.models;
 
+import java.io.*;
+
 /**
  * This class uses toString() override to provide a string representation for customer objects.
+ * The text itself is rendered by ReportWriter.
  * @author Connor Love
  * @since 4/5/2023
  */
@@ -21,15 +24,13 @@ public abstract class AbsCustomer implements ICustomer {
      */
     @Override
     public String toString() {
-        String str = "";
-        str += "Name: " + getName() + "\n";
-        str += "Income: $" + getIncome() + "\n";
-        str += "Credit Score: " + getCreditScore() + "\n";
-        str += "Monthly Debt: $" + getMonthlyDebtPayments() + "\n";
-        str += "Mortgage info:";
-        if (appliedForLoan()) {
-            str += loan.toString();
+        StringBuilder sb = new StringBuilder(192);
+        try {
+            ReportWriter.writeCustomer(this, appliedForLoan() ? loan : null, sb);
+        } catch (IOException e) {
+            //StringBuilder never throws IOException
+            throw new UncheckedIOException(e);
         }
-        return str;
+        return sb.toString();
     }
 }
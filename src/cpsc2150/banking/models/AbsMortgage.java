@@ -1,8 +1,11 @@
 
 package cpsc2150.banking.models;
 
+import java.io.*;
+
 /**
  * This class overrides toString() to provide a string representation for mortgage objects.
+ * The text itself is rendered by ReportWriter.
  * @author Connor Love
  * @since 4/5/2023
  */
@@ -17,16 +20,13 @@ public abstract class AbsMortgage implements IMortgage {
      */
     @Override
     public String toString() {
-        String str = "";
-        if (loanApproved()) {
-            str += "Principal Amount: $" + getPrincipal() + "\n";
-            str += "Interest Rate: " + (getRate() * 100) + "%\n";
-            str += "Term: " + getYears() + " years\n";
-            str += "Monthly Payment: $" + getPayment() + "\n";
-        } else {
-            str += "Loan was not approved\n";
+        StringBuilder sb = new StringBuilder(128);
+        try {
+            ReportWriter.writeMortgage(this, sb);
+        } catch (IOException e) {
+            //StringBuilder never throws IOException
+            throw new UncheckedIOException(e);
         }
-
-        return str;
+        return sb.toString();
     }
 }
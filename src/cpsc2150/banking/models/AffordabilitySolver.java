@@ -0,0 +1,240 @@
+package cpsc2150.banking.models;
+
+/**
+ * This class answers pre-qualification questions directly instead of re-running Mortgage with guess after
+ * guess. For a customer and a term, the credit and term tiers are fixed, so the only APR tiers left are the
+ * two down payment tiers. For each of them the debt to income limit is inverted in closed form:
+ *
+ *      (Rate * Principal / Factor + MonthlyDebt) / (Income / 12) <= DTOITOOHIGH
+ *      Principal <= (DTOITOOHIGH * Income / 12 - MonthlyDebt) * Factor / Rate
+ *
+ * where Factor = 1 - (1 + Rate)^-NumberOfPayments. The minimum down payment and maximum house cost follow
+ * from that together with the percent down limits of the tier. Every answer is checked with one
+ * Mortgage.quote() priced by the same policy; only when floating point rounding at a tier boundary makes
+ * that check fail is the answer moved by a short bisection.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ */
+public final class AffordabilitySolver {
+    private static final int MAX_BISECTIONS = 64;
+
+    private AffordabilitySolver() {}
+
+    /**
+     * This class holds the answers for one down payment tier.
+     *
+     * @Defines:
+     *      downTier - AnnuityTable.PREFERRED_DOWN or AnnuityTable.LOW_DOWN
+     *      apr - the APR of the tier for this customer and term
+     *      rateApprovable - false if the APR alone is too high to approve
+     *      maxPrincipal - the largest approvable principal, 0 if none
+     *      minDownPayment - the smallest approvable down payment on the house, NaN if none
+     */
+    public static final class Tier {
+        public final int downTier;
+        public final double apr;
+        public final boolean rateApprovable;
+        public final double maxPrincipal;
+        public final double minDownPayment;
+
+        Tier(int downTier, double apr, boolean rateApprovable, double maxPrincipal, double minDownPayment) {
+            this.downTier = downTier;
+            this.apr = apr;
+            this.rateApprovable = rateApprovable;
+            this.maxPrincipal = maxPrincipal;
+            this.minDownPayment = minDownPayment;
+        }
+    }
+
+    /**
+     * This method pre-qualifies a customer for a house in every down payment tier.
+     *
+     * @param customer the customer
+     * @param years the term in years
+     * @param houseCost the cost of the house
+     * @return one Tier per down payment tier, indexed by AnnuityTable.PREFERRED_DOWN and AnnuityTable.LOW_DOWN
+     * @pre customer != null AND years > 0 AND houseCost > 0
+     */
+    public static Tier[] prequalify(ICustomer customer, int years, double houseCost) {
+        RatePolicy policy = RatePolicy.current();
+        Tier[] tiers = new Tier[AnnuityTable.DOWN_TIERS];
+        for (int downTier = 0; downTier < AnnuityTable.DOWN_TIERS; downTier++) {
+            int tier = tier(policy, customer, years, downTier);
+            double apr = policy.apr(tier);
+            boolean rateOk = policy.approved(apr, 1, 0);
+            tiers[downTier] = new Tier(downTier, apr, rateOk,
+                    rateOk ? maxPrincipal(policy, customer, years, tier) : 0,
+                    minDownPayment(policy, customer, years, houseCost, downTier));
+        }
+        return tiers;
+    }
+
+    /**
+     * This method returns the largest principal the customer's income supports in a down payment tier.
+     *
+     * @param customer the customer
+     * @param years the term in years
+     * @param downTier AnnuityTable.PREFERRED_DOWN or AnnuityTable.LOW_DOWN
+     * @return the largest principal that keeps the debt to income ratio within the limit, 0 if none,
+     *         or 0 if the tier's APR is too high to approve
+     * @pre customer != null AND years > 0
+     */
+    public static double maxPrincipal(ICustomer customer, int years, int downTier) {
+        RatePolicy policy = RatePolicy.current();
+        int tier = tier(policy, customer, years, downTier);
+        return policy.approved(policy.apr(tier), 1, 0) ? maxPrincipal(policy, customer, years, tier) : 0;
+    }
+
+    /**
+     * This method returns the smallest down payment that gets a house approved in a down payment tier.
+     *
+     * @param customer the customer
+     * @param years the term in years
+     * @param houseCost the cost of the house
+     * @param downTier AnnuityTable.PREFERRED_DOWN or AnnuityTable.LOW_DOWN
+     * @return the smallest approvable down payment in that tier, or NaN if no down payment in the tier is approved
+     * @pre customer != null AND years > 0 AND houseCost > 0
+     * @post [if not NaN, new Mortgage(houseCost, minDownPayment, years, customer).loanApproved() under the policy
+     *      current when the method was called]
+     */
+    public static double minDownPayment(ICustomer customer, int years, double houseCost, int downTier) {
+        return minDownPayment(RatePolicy.current(), customer, years, houseCost, downTier);
+    }
+
+    /**
+     * This method finds the smallest approvable down payment with one policy throughout.
+     */
+    private static double minDownPayment(RatePolicy policy, ICustomer customer, int years, double houseCost, int downTier) {
+        int tier = tier(policy, customer, years, downTier);
+        if (!policy.approved(policy.apr(tier), 1, 0)) {
+            return Double.NaN;
+        }
+        double pmax = maxPrincipal(policy, customer, years, tier);
+        double preferred = policy.getPreferredPercentDown() * houseCost;
+
+        //The tier's range of down payments, and the closed form answer inside it
+        double low;
+        double high;
+        if (downTier == AnnuityTable.LOW_DOWN) {
+            low = Math.max(policy.getMinPercentDown() * houseCost, houseCost - pmax);
+            high = preferred;
+        } else {
+            low = Math.max(preferred, houseCost - pmax);
+            high = houseCost;
+        }
+        low = Math.max(low, 0);
+        if (low >= high) {
+            return Double.NaN;
+        }
+        if (approvedInTier(policy, customer, years, houseCost, low, downTier)) {
+            return low;
+        }
+
+        //Rounding put the closed form answer just outside; more down is always at least as good within a tier
+        double hi = Math.nextDown(high);
+        if (!approvedInTier(policy, customer, years, houseCost, hi, downTier)) {
+            return Double.NaN;
+        }
+        double lo = low;
+        for (int i = 0; i < MAX_BISECTIONS && Math.nextUp(lo) < hi; i++) {
+            double mid = lo + (hi - lo) / 2;
+            if (approvedInTier(policy, customer, years, houseCost, mid, downTier)) {
+                hi = mid;
+            } else {
+                lo = mid;
+            }
+        }
+        return hi;
+    }
+
+    /**
+     * This method returns the most expensive house the customer can buy with a given down payment in a tier.
+     *
+     * @param customer the customer
+     * @param years the term in years
+     * @param downPayment the cash the customer can put down
+     * @param downTier AnnuityTable.PREFERRED_DOWN or AnnuityTable.LOW_DOWN
+     * @return the highest approvable house cost in that tier, or NaN if no house cost in the tier is approved
+     * @pre customer != null AND years > 0 AND downPayment > 0
+     * @post [if not NaN, new Mortgage(maxHouseCost, downPayment, years, customer).loanApproved() under the policy
+     *      current when the method was called]
+     */
+    public static double maxHouseCost(ICustomer customer, int years, double downPayment, int downTier) {
+        RatePolicy policy = RatePolicy.current();
+        int tier = tier(policy, customer, years, downTier);
+        if (!policy.approved(policy.apr(tier), 1, 0)) {
+            return Double.NaN;
+        }
+        double pmax = maxPrincipal(policy, customer, years, tier);
+
+        //The tier's range of house costs, and the closed form answer inside it
+        double low;
+        double high;
+        if (downTier == AnnuityTable.LOW_DOWN) {
+            low = downPayment / policy.getPreferredPercentDown();
+            high = Math.min(downPayment / policy.getMinPercentDown(), downPayment + pmax);
+        } else {
+            low = downPayment;
+            high = Math.min(downPayment / policy.getPreferredPercentDown(), downPayment + pmax);
+        }
+        if (high <= low) {
+            return Double.NaN;
+        }
+        if (approvedInTier(policy, customer, years, high, downPayment, downTier)) {
+            return high;
+        }
+
+        //Rounding put the closed form answer just outside; a cheaper house is always at least as good within a tier
+        double lo = Math.nextUp(low);
+        if (!approvedInTier(policy, customer, years, lo, downPayment, downTier)) {
+            return Double.NaN;
+        }
+        double hi = high;
+        for (int i = 0; i < MAX_BISECTIONS && Math.nextUp(lo) < hi; i++) {
+            double mid = lo + (hi - lo) / 2;
+            if (approvedInTier(policy, customer, years, mid, downPayment, downTier)) {
+                lo = mid;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * This method inverts the debt to income limit for a tier.
+     */
+    private static double maxPrincipal(RatePolicy policy, ICustomer customer, int years, int tier) {
+        double room = policy.getDtiTooHigh() * (customer.getIncome() / IMortgage.MONTHS_IN_YEAR) - customer.getMonthlyDebtPayments();
+        if (room <= 0) {
+            return 0;
+        }
+        double rate = policy.rate(tier);
+        if (rate == 0) {
+            return room * years * IMortgage.MONTHS_IN_YEAR;
+        }
+        return room * policy.annuityFactor(tier, rate, years) / rate;
+    }
+
+    /**
+     * This method finds the APR tier for a customer, term, and down payment tier.
+     */
+    private static int tier(RatePolicy policy, ICustomer customer, int years, int downTier) {
+        //Any percent down in the tier gives the same tier; these two sit on either side of the preferred percent
+        double percentDown = downTier == AnnuityTable.LOW_DOWN ? 0 : policy.getPreferredPercentDown();
+        return policy.tier(years, percentDown, customer.getCreditScore());
+    }
+
+    /**
+     * This method checks one candidate by pricing it with the same policy the answer came from, including that
+     * it landed in the intended tier, so a policy installed during a solve cannot mix two sets of rules.
+     */
+    private static boolean approvedInTier(RatePolicy policy, ICustomer customer, int years, double houseCost,
+                                          double downPayment, int downTier) {
+        double percentDown = downPayment / houseCost;
+        boolean inTier = (percentDown < policy.getPreferredPercentDown()) == (downTier == AnnuityTable.LOW_DOWN);
+        return inTier && downPayment < houseCost && Mortgage.quote(houseCost, downPayment, years, customer.getIncome(),
+                customer.getMonthlyDebtPayments(), customer.getCreditScore(), policy, new MortgageQuote());
+    }
+}
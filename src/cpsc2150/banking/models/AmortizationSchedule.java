@@ -0,0 +1,120 @@
+package cpsc2150.banking.models;
+
+/**
+ * This class walks the month-by-month amortization schedule of one loan. Each call to next() computes the
+ * following row from the previous one, so a schedule is never stored, and the current row is read
+ * through primitive getters so no object is created per row.
+ * The final row pays off whatever balance is left, so the schedule always ends at exactly 0. If the level
+ * payment pays the loan off before the last month, that row is the final row and its Month is its real
+ * month, so the schedule can have fewer than NumberOfPayments rows.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines:
+ *      Month: Z - the current row, 1 for the first payment, 0 before next() is called
+ *      Balance: R - the principal still owed after the current row
+ *
+ * @invariant 0 <= Month <= NumberOfPayments AND 0 <= Balance
+ */
+public class AmortizationSchedule {
+    private final double rate;
+    private final double levelPayment;
+    private final int numberOfPayments;
+
+    private int month;
+    private double payment;
+    private double interest;
+    private double principalPaid;
+    private double balance;
+
+    /**
+     * Constructor that starts a schedule before its first payment.
+     *
+     * @param principal the amount of the loan
+     * @param rate the interest rate per monthly period
+     * @param payment the level monthly payment
+     * @param numberOfPayments the number of monthly payments
+     * @pre principal > 0 AND rate >= 0 AND payment > 0 AND numberOfPayments >= 0
+     * @post Month = 0 AND Balance = principal
+     */
+    public AmortizationSchedule(double principal, double rate, double payment, int numberOfPayments) {
+        this.rate = rate;
+        this.levelPayment = payment;
+        this.numberOfPayments = numberOfPayments;
+        this.balance = principal;
+    }
+
+    /**
+     * This method moves to the next row of the schedule.
+     *
+     * @return true if there was another row, false once every payment has been made or the balance is paid off
+     * @post [if there was another row, Month = #Month + 1 and the getters describe it]
+     */
+    public boolean next() {
+        if (month >= numberOfPayments || balance == 0) {
+            return false;
+        }
+        month++;
+        interest = balance * rate;
+        if (month == numberOfPayments || levelPayment - interest >= balance) {
+            //Last row: pay off exactly what is left
+            principalPaid = balance;
+            payment = interest + balance;
+            balance = 0;
+        } else {
+            principalPaid = levelPayment - interest;
+            payment = levelPayment;
+            balance -= principalPaid;
+        }
+        return true;
+    }
+
+    /**
+     * This method returns the number of the current row.
+     * @return the current month, starting at 1
+     */
+    public int getMonth() {
+        return month;
+    }
+
+    /**
+     * This method returns the payment made in the current row.
+     * @return the payment for the current month
+     */
+    public double getPayment() {
+        return payment;
+    }
+
+    /**
+     * This method returns the part of the current payment that is interest.
+     * @return the interest for the current month
+     */
+    public double getInterest() {
+        return interest;
+    }
+
+    /**
+     * This method returns the part of the current payment that pays down the principal.
+     * @return the principal paid in the current month
+     */
+    public double getPrincipalPaid() {
+        return principalPaid;
+    }
+
+    /**
+     * This method returns the principal still owed after the current row.
+     * @return the remaining balance
+     */
+    public double getBalance() {
+        return balance;
+    }
+
+    /**
+     * This method returns the total number of rows in the schedule.
+     * @return the number of monthly payments
+     */
+    public int getNumberOfPayments() {
+        return numberOfPayments;
+    }
+}
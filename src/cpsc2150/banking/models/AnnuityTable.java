@@ -0,0 +1,100 @@
+package cpsc2150.banking.models;
+
+/**
+ * This class holds the precomputed annuity factor 1 - (1 + Rate)^-NumberOfPayments for every APR tier
+ * combination of a RatePolicy and every whole-year term up to the table's last year, so the payment
+ * formula does not need to call Math.pow. The APR is always a base rate plus one term add-on, one down
+ * payment add-on and one credit add-on, so there are only TIERS different APRs.
+ * Any rate or term that is not in the table is computed with Math.pow instead.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @invariant [factors[tier * (maxYears + 1) + y] = 1 - (1 + rates[tier])^-(y * MONTHS_IN_YEAR)
+ *             for every tier combination and 1 <= y <= maxYears]
+ */
+public final class AnnuityTable {
+
+    // Term tiers: shorter than the long term, or the long term and longer
+    public static final int SHORT_TERM = 0;
+    public static final int LONG_TERM = 1;
+    public static final int TERM_TIERS = 2;
+
+    // Down payment tiers: at least the preferred percent down, or less
+    public static final int PREFERRED_DOWN = 0;
+    public static final int LOW_DOWN = 1;
+    public static final int DOWN_TIERS = 2;
+
+    // Credit tiers, lowest to highest
+    public static final int VERY_BAD_CREDIT = 0;
+    public static final int BAD_CREDIT = 1;
+    public static final int FAIR_CREDIT = 2;
+    public static final int GOOD_CREDIT = 3;
+    public static final int GREAT_CREDIT = 4;
+    public static final int CREDIT_TIERS = 5;
+
+    public static final int TIERS = TERM_TIERS * DOWN_TIERS * CREDIT_TIERS;
+
+    // Monthly rate for each tier combination
+    private final double[] rates;
+    // Annuity factor for each tier combination and number of years
+    private final double[] factors;
+    private final int row;
+
+    /**
+     * Constructor that precomputes the factors for every tier combination.
+     *
+     * @param monthlyRates the monthly rate of each tier combination
+     * @param maxYears the longest term to precompute
+     * @pre monthlyRates.length = TIERS AND maxYears >= 0
+     * @post [factors holds 1 - (1 + monthlyRates[t])^-(y * MONTHS_IN_YEAR) for each tier t and 1 <= y <= maxYears]
+     */
+    public AnnuityTable(double[] monthlyRates, int maxYears) {
+        rates = monthlyRates.clone();
+        row = maxYears + 1;
+        factors = new double[TIERS * row];
+        for (int tier = 0; tier < TIERS; tier++) {
+            for (int y = 1; y < row; y++) {
+                factors[tier * row + y] = compute(rates[tier], y * IMortgage.MONTHS_IN_YEAR);
+            }
+        }
+    }
+
+    /**
+     * This method combines the three tiers into one table index.
+     *
+     * @param termTier SHORT_TERM or LONG_TERM
+     * @param downTier PREFERRED_DOWN or LOW_DOWN
+     * @param creditTier VERY_BAD_CREDIT through GREAT_CREDIT
+     * @return the index of the tier combination
+     * @pre 0 <= termTier < TERM_TIERS AND 0 <= downTier < DOWN_TIERS AND 0 <= creditTier < CREDIT_TIERS
+     * @post 0 <= tier < TIERS
+     */
+    public static int tier(int termTier, int downTier, int creditTier) {
+        return (termTier * DOWN_TIERS + downTier) * CREDIT_TIERS + creditTier;
+    }
+
+    /**
+     * This method returns the annuity factor 1 - (1 + rate)^-(years * MONTHS_IN_YEAR).
+     * The table is used when rate is the rate for tier and years is in the table, otherwise it is computed.
+     *
+     * @param tier the tier combination the rate came from, or -1 if it did not come from one
+     * @param rate the monthly rate
+     * @param years the term in years
+     * @return the annuity factor
+     * @post factor = 1 - (1 + rate)^-(years * MONTHS_IN_YEAR)
+     */
+    public double factor(int tier, double rate, int years) {
+        if (tier >= 0 && tier < TIERS && years > 0 && years < row && rates[tier] == rate) {
+            return factors[tier * row + years];
+        }
+        return compute(rate, years * IMortgage.MONTHS_IN_YEAR);
+    }
+
+    /**
+     * This method computes the annuity factor the same way the payment formula always has.
+     */
+    private static double compute(double rate, int numberOfPayments) {
+        return 1 - Math.pow((1 + rate), -(numberOfPayments));
+    }
+}
@@ -0,0 +1,229 @@
+package cpsc2150.banking.models;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * This class keeps a book of customers in a file of fixed width records that is memory mapped, so the book
+ * survives restarts, opens without reading anything, and holds no objects for the garbage collector to scan.
+ * Customers are read through StoredCustomer, a flyweight that reads each field straight out of the mapped
+ * file and can be passed to Mortgage like any other ICustomer.
+ *
+ * The file starts with a HEADER_BYTES header, then one RECORD_BYTES record per customer:
+ *
+ *      0   income          double
+ *      8   monthly debt    double
+ *      16  credit score    int
+ *      20  name length     short, in UTF-8 bytes
+ *      22  name            MAX_NAME_BYTES bytes of UTF-8
+ *
+ * The file is mapped SEGMENT_RECORDS records at a time, since one mapping can be at most 2GB. Any number
+ * of threads can read at once; adds are synchronized. A mapping is released by the garbage collector after
+ * the store is closed, as Java has no way to unmap it sooner.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines:
+ *      Size: Z - the number of customers in the book
+ */
+public final class CustomerStore implements Closeable {
+    public static final int RECORD_BYTES = 64;
+    public static final int HEADER_BYTES = 64;
+    public static final int MAX_NAME_BYTES = RECORD_BYTES - 22;
+    public static final int SEGMENT_RECORDS = 1 << 22;
+
+    static final int INCOME = 0;
+    static final int DEBT = 8;
+    static final int SCORE = 16;
+    static final int NAME_LENGTH = 20;
+    static final int NAME = 22;
+
+    private static final int MAGIC = 0x43535452; // "CSTR"
+    private static final int VERSION = 1;
+    private static final int COUNT = 16;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private volatile ByteBuffer[] mapped;
+    private volatile int size;
+
+    private CustomerStore(FileChannel channel) throws IOException {
+        this.channel = channel;
+        boolean created = channel.size() == 0;
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        if (created) {
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putInt(8, RECORD_BYTES);
+            header.putLong(COUNT, 0);
+        } else if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != RECORD_BYTES) {
+            throw new IOException("not a customer store");
+        }
+        long count = header.getLong(COUNT);
+        if (count < 0 || count > Integer.MAX_VALUE) {
+            throw new IOException("corrupt customer store: " + count + " records");
+        }
+        size = (int) count;
+        while ((long) segments.size() * SEGMENT_RECORDS < size) {
+            mapSegment();
+        }
+        mapped = segments.toArray(new ByteBuffer[0]);
+    }
+
+    /**
+     * This method opens a book, creating an empty one if the file does not exist.
+     *
+     * @param file the book's file
+     * @return the open book
+     * @throws IOException if the file cannot be opened or is not a customer store
+     */
+    public static CustomerStore open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new CustomerStore(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return Size, the number of customers in the book
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * This method adds a customer to the end of the book.
+     *
+     * @param name the customer's name
+     * @param income the customer's yearly income
+     * @param monthlyDebt the customer's monthly debt payments
+     * @param creditScore the customer's credit score
+     * @return the index of the new customer
+     * @throws IOException if the file cannot grow
+     * @pre name != null AND [name is at most MAX_NAME_BYTES bytes of UTF-8]
+     * @post Size = #Size + 1
+     */
+    public synchronized int add(String name, double income, double monthlyDebt, int creditScore) throws IOException {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("name is longer than " + MAX_NAME_BYTES + " bytes: " + name);
+        }
+        int index = size;
+        if (index == Integer.MAX_VALUE) {
+            throw new IOException("customer store is full");
+        }
+        if (index / SEGMENT_RECORDS == segments.size()) {
+            mapSegment();
+            mapped = segments.toArray(new ByteBuffer[0]);
+        }
+        ByteBuffer segment = segments.get(index / SEGMENT_RECORDS);
+        int at = (index % SEGMENT_RECORDS) * RECORD_BYTES;
+        segment.putDouble(at + INCOME, income);
+        segment.putDouble(at + DEBT, monthlyDebt);
+        segment.putInt(at + SCORE, creditScore);
+        segment.putShort(at + NAME_LENGTH, (short) bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            segment.put(at + NAME + i, bytes[i]);
+        }
+        //The record is written before the count that makes it visible
+        header.putLong(COUNT, index + 1);
+        size = index + 1;
+        return index;
+    }
+
+    /**
+     * This method adds a copy of a customer's fields to the end of the book.
+     *
+     * @param customer the customer
+     * @return the index of the new customer
+     * @throws IOException if the file cannot grow
+     * @pre customer != null AND [the name is at most MAX_NAME_BYTES bytes of UTF-8]
+     * @post Size = #Size + 1
+     */
+    public int add(ICustomer customer) throws IOException {
+        return add(customer.getName(), customer.getIncome(), customer.getMonthlyDebtPayments(), customer.getCreditScore());
+    }
+
+    /**
+     * This method returns a flyweight for one customer.
+     *
+     * @param index the customer's index
+     * @return a StoredCustomer reading that customer's record
+     * @pre 0 <= index < Size
+     */
+    public StoredCustomer get(int index) {
+        return new StoredCustomer(this, index);
+    }
+
+    /**
+     * This method writes every change to the book through to the disk.
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void force() throws IOException {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        header.force();
+    }
+
+    /**
+     * This method writes every change through to the disk and closes the file. Flyweights must not be used
+     * after the store is closed.
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    double income(int index) {
+        return segment(index).getDouble(offset(index) + INCOME);
+    }
+
+    double monthlyDebt(int index) {
+        return segment(index).getDouble(offset(index) + DEBT);
+    }
+
+    int creditScore(int index) {
+        return segment(index).getInt(offset(index) + SCORE);
+    }
+
+    String name(int index) {
+        ByteBuffer segment = segment(index);
+        int at = offset(index);
+        byte[] bytes = new byte[segment.getShort(at + NAME_LENGTH)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = segment.get(at + NAME + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private ByteBuffer segment(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("customer " + index + " of " + size);
+        }
+        return mapped[index / SEGMENT_RECORDS];
+    }
+
+    private static int offset(int index) {
+        return (index % SEGMENT_RECORDS) * RECORD_BYTES;
+    }
+
+    /**
+     * This method maps the next segment, which grows the file to hold it.
+     */
+    private void mapSegment() throws IOException {
+        long start = HEADER_BYTES + (long) segments.size() * SEGMENT_RECORDS * RECORD_BYTES;
+        segments.add(channel.map(FileChannel.MapMode.READ_WRITE, start, (long) SEGMENT_RECORDS * RECORD_BYTES));
+    }
+}
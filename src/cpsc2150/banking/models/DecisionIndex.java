@@ -0,0 +1,465 @@
+package cpsc2150.banking.models;
+
+import java.util.*;
+
+/**
+ * This class indexes decisions for range queries such as "approved loans with a debt to income ratio from
+ * .35 to .40 and a credit score from 600 to 700" without scanning every decision. It keeps
+ *
+ *      a sorted array for each of credit score, debt to income ratio, APR and principal, where each entry
+ *          packs the value (as a float, for the doubles) above the row number in one long
+ *      a bitmap for each term in years, and a bitmap of approved rows
+ *
+ * A query finds how many rows each of its ranges covers with two binary searches per range. It marks the
+ * rows of the narrowest range in a bitmap, intersects that with the term and approved bitmaps, and checks
+ * every other condition against the exact stored values for the rows left, in row order.
+ *
+ * Rows are added at the end. New rows are kept in an unsorted tail that every query scans, and the tail
+ * is merged into the sorted arrays once it grows past a fraction of the index, so adding n rows costs
+ * O(n log n) overall.
+ *
+ * It is not safe for one thread to add while another queries.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines:
+ *      Size: Z - the number of rows added
+ */
+public final class DecisionIndex {
+    // Columns with a sorted array
+    private static final int SCORE = 0;
+    private static final int DTI = 1;
+    private static final int APR = 2;
+    private static final int PRINCIPAL = 3;
+    private static final int SORTED_COLUMNS = 4;
+
+    private static final int MIN_TAIL = 1 << 16;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int size;
+    private int[] creditScore = new int[INITIAL_CAPACITY];
+    private double[] debtToIncome = new double[INITIAL_CAPACITY];
+    private double[] apr = new double[INITIAL_CAPACITY];
+    private double[] principal = new double[INITIAL_CAPACITY];
+    private int[] years = new int[INITIAL_CAPACITY];
+    private long[] approved = new long[INITIAL_CAPACITY / 64];
+
+    // Rows below indexed are in the sorted arrays; the rest are the tail
+    private int indexed;
+    private final long[][] sorted = new long[SORTED_COLUMNS][0];
+    // Bitmap and row count for each term, indexed by years
+    private long[][] termRows = new long[0][];
+    private int[] termCounts = new int[0];
+    private int approvedCount;
+
+    /**
+     * This class is a conjunction of conditions. Every range includes both ends; a condition that was
+     * never set matches every row.
+     */
+    public static final class Query {
+        private final double[] low = new double[SORTED_COLUMNS];
+        private final double[] high = new double[SORTED_COLUMNS];
+        private final boolean[] ranged = new boolean[SORTED_COLUMNS];
+        private int minYears = Integer.MIN_VALUE;
+        private int maxYears = Integer.MAX_VALUE;
+        private Boolean approved;
+
+        /**
+         * This method keeps only approved or only rejected rows.
+         * @param isApproved true for approved rows, false for rejected ones
+         * @return this
+         */
+        public Query approved(boolean isApproved) {
+            approved = isApproved;
+            return this;
+        }
+
+        /**
+         * @return this, keeping only rows with a credit score from min to max
+         */
+        public Query creditScore(int min, int max) {
+            return range(SCORE, min, max);
+        }
+
+        /**
+         * @return this, keeping only rows with a debt to income ratio from min to max
+         */
+        public Query debtToIncome(double min, double max) {
+            return range(DTI, min, max);
+        }
+
+        /**
+         * @return this, keeping only rows with an APR from min to max
+         */
+        public Query apr(double min, double max) {
+            return range(APR, min, max);
+        }
+
+        /**
+         * @return this, keeping only rows with a principal from min to max
+         */
+        public Query principal(double min, double max) {
+            return range(PRINCIPAL, min, max);
+        }
+
+        /**
+         * @return this, keeping only rows with a term from min to max years
+         */
+        public Query years(int min, int max) {
+            minYears = min;
+            maxYears = max;
+            return this;
+        }
+
+        private Query range(int column, double min, double max) {
+            low[column] = min;
+            high[column] = max;
+            ranged[column] = true;
+            return this;
+        }
+    }
+
+    /**
+     * @return Size, the number of rows added
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * This method adds one decision.
+     *
+     * @param score the customer's credit score
+     * @param dti the debt to income ratio including the payment
+     * @param rate the APR
+     * @param loanPrincipal the principal
+     * @param numOfYears the term in years
+     * @param isApproved whether the loan was approved
+     * @return the new row's number
+     * @pre numOfYears >= 0
+     * @post Size = #Size + 1
+     */
+    public int add(int score, double dti, double rate, double loanPrincipal, int numOfYears, boolean isApproved) {
+        if (size == creditScore.length) {
+            grow();
+        }
+        int row = size++;
+        creditScore[row] = score;
+        debtToIncome[row] = dti;
+        apr[row] = rate;
+        principal[row] = loanPrincipal;
+        years[row] = numOfYears;
+        if (isApproved) {
+            approved[row >>> 6] |= 1L << row;
+            approvedCount++;
+        }
+        if (numOfYears >= termRows.length) {
+            termRows = Arrays.copyOf(termRows, numOfYears + 1);
+            termCounts = Arrays.copyOf(termCounts, numOfYears + 1);
+        }
+        if (termRows[numOfYears] == null) {
+            termRows[numOfYears] = new long[approved.length];
+        }
+        termRows[numOfYears][row >>> 6] |= 1L << row;
+        termCounts[numOfYears]++;
+
+        if (size - indexed > Math.max(MIN_TAIL, indexed / 8)) {
+            merge();
+        }
+        return row;
+    }
+
+    /**
+     * This method adds one mortgage.
+     * @param m the mortgage
+     * @return the new row's number
+     * @pre m != null
+     * @post Size = #Size + 1
+     */
+    public int add(IMortgage m) {
+        return add(m.getCustomer().getCreditScore(), m.getDebtToIncomeRatio(), m.getRate(), m.getPrincipal(),
+                m.getYears(), m.loanApproved());
+    }
+
+    /**
+     * This method adds every row of evaluated columns, in order.
+     * @param columns the columns
+     * @pre [columns has been evaluated]
+     * @post Size = #Size + columns.size()
+     */
+    public void addAll(MortgageColumns columns) {
+        for (int i = 0; i < columns.size(); i++) {
+            add(columns.creditScore[i], columns.debtToIncome[i], columns.apr[i],
+                    columns.houseCost[i] - columns.downPayment[i], columns.years[i], columns.loanApproved(i));
+        }
+    }
+
+    /**
+     * This method finds every row that meets a query.
+     * @param q the query
+     * @return the matching rows, ascending
+     * @pre q != null
+     */
+    public int[] find(Query q) {
+        int[] rows = new int[16];
+        int count = 0;
+
+        int driver = -1;
+        long driverCount = bitmapCount(q);
+        int[] bounds = new int[2];
+        for (int c = 0; c < SORTED_COLUMNS; c++) {
+            if (q.ranged[c]) {
+                range(c, q.low[c], q.high[c], bounds);
+                if (bounds[1] - bounds[0] < driverCount) {
+                    driverCount = bounds[1] - bounds[0];
+                    driver = c;
+                }
+            }
+        }
+
+        long[] candidates = null;
+        if (driver >= 0) {
+            //Mark the narrowest range's rows so they can be walked in row order with the bitmaps
+            range(driver, q.low[driver], q.high[driver], bounds);
+            long[] entries = sorted[driver];
+            candidates = new long[(indexed + 63) >>> 6];
+            for (int k = bounds[0]; k < bounds[1]; k++) {
+                int row = (int) entries[k];
+                candidates[row >>> 6] |= 1L << row;
+            }
+        }
+        for (int w = 0; w < (indexed + 63) >>> 6; w++) {
+            long word = bitmapWord(q, w);
+            if (candidates != null) {
+                word &= candidates[w];
+            }
+            if (w == indexed >>> 6) {
+                word &= (1L << indexed) - 1;
+            }
+            while (word != 0) {
+                int row = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                if (matches(row, q)) {
+                    if (count == rows.length) {
+                        rows = Arrays.copyOf(rows, count * 2);
+                    }
+                    rows[count++] = row;
+                }
+            }
+        }
+
+        //The tail is not in the sorted arrays; its rows all come after the indexed ones
+        for (int row = indexed; row < size; row++) {
+            if (matches(row, q)) {
+                if (count == rows.length) {
+                    rows = Arrays.copyOf(rows, count * 2);
+                }
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * This method counts the rows that meet a query.
+     * @param q the query
+     * @return the number of matching rows
+     * @pre q != null
+     */
+    public int count(Query q) {
+        return find(q).length;
+    }
+
+    /**
+     * This method checks whether a row was approved.
+     * @param row the row
+     * @return true iff the row was approved
+     * @pre 0 <= row < Size
+     */
+    public boolean loanApproved(int row) {
+        return (approved[row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * @return the credit score of a row
+     */
+    public int getCreditScore(int row) {
+        return creditScore[row];
+    }
+
+    /**
+     * @return the debt to income ratio of a row
+     */
+    public double getDebtToIncome(int row) {
+        return debtToIncome[row];
+    }
+
+    /**
+     * @return the APR of a row
+     */
+    public double getApr(int row) {
+        return apr[row];
+    }
+
+    /**
+     * @return the principal of a row
+     */
+    public double getPrincipal(int row) {
+        return principal[row];
+    }
+
+    /**
+     * @return the term in years of a row
+     */
+    public int getYears(int row) {
+        return years[row];
+    }
+
+    /**
+     * This method checks every condition of a query against a row's exact values.
+     */
+    private boolean matches(int row, Query q) {
+        if (q.approved != null && loanApproved(row) != q.approved) {
+            return false;
+        }
+        if (years[row] < q.minYears || years[row] > q.maxYears) {
+            return false;
+        }
+        return (!q.ranged[SCORE] || (creditScore[row] >= q.low[SCORE] && creditScore[row] <= q.high[SCORE]))
+                && (!q.ranged[DTI] || (debtToIncome[row] >= q.low[DTI] && debtToIncome[row] <= q.high[DTI]))
+                && (!q.ranged[APR] || (apr[row] >= q.low[APR] && apr[row] <= q.high[APR]))
+                && (!q.ranged[PRINCIPAL] || (principal[row] >= q.low[PRINCIPAL] && principal[row] <= q.high[PRINCIPAL]));
+    }
+
+    /**
+     * This method returns how many indexed rows the term and approved conditions leave, at most.
+     */
+    private long bitmapCount(Query q) {
+        long count = q.approved == null ? indexed : q.approved ? approvedCount : size - approvedCount;
+        if (q.minYears != Integer.MIN_VALUE || q.maxYears != Integer.MAX_VALUE) {
+            long terms = 0;
+            for (int y = Math.max(q.minYears, 0); y < termCounts.length && y <= q.maxYears; y++) {
+                terms += termCounts[y];
+            }
+            count = Math.min(count, terms);
+        }
+        return count;
+    }
+
+    /**
+     * This method returns one word of the intersection of the term and approved bitmaps.
+     */
+    private long bitmapWord(Query q, int w) {
+        long word = -1L;
+        if (q.approved != null) {
+            word = q.approved ? approved[w] : ~approved[w];
+        }
+        if (q.minYears != Integer.MIN_VALUE || q.maxYears != Integer.MAX_VALUE) {
+            long terms = 0;
+            for (int y = Math.max(q.minYears, 0); y < termRows.length && y <= q.maxYears; y++) {
+                if (termRows[y] != null) {
+                    terms |= termRows[y][w];
+                }
+            }
+            word &= terms;
+        }
+        return word;
+    }
+
+    /**
+     * This method finds the entries of a sorted array whose packed value could be in [low, high].
+     * Rounding to float can only widen the range, and matches() checks the exact value afterwards.
+     *
+     * @param bounds set to the first entry and one past the last
+     */
+    private void range(int column, double low, double high, int[] bounds) {
+        long[] entries = sorted[column];
+        if (!(low <= high)) {
+            bounds[0] = 0;
+            bounds[1] = 0;
+            return;
+        }
+        bounds[0] = lowerBound(entries, (long) key(column, low) << 32);
+        //Row numbers are below 2^31, so this is past every entry with the high key
+        bounds[1] = lowerBound(entries, ((long) key(column, high) << 32) | 0xFFFFFFFFL);
+    }
+
+    private static int lowerBound(long[] entries, long target) {
+        int lo = 0;
+        int hi = entries.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (entries[mid] < target) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * This method turns a value into the int its column is sorted by.
+     */
+    private static int key(int column, double value) {
+        if (column == SCORE) {
+            return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, Math.floor(value)));
+        }
+        //Flipping the bits of negative floats makes the ints order the same way the floats do
+        int bits = Float.floatToIntBits((float) value);
+        return bits ^ ((bits >> 31) & Integer.MAX_VALUE);
+    }
+
+    private double value(int column, int row) {
+        switch (column) {
+            case SCORE: return creditScore[row];
+            case DTI: return debtToIncome[row];
+            case APR: return apr[row];
+            default: return principal[row];
+        }
+    }
+
+    /**
+     * This method merges the tail into the sorted arrays.
+     */
+    private void merge() {
+        int tail = size - indexed;
+        for (int c = 0; c < SORTED_COLUMNS; c++) {
+            long[] added = new long[tail];
+            for (int k = 0; k < tail; k++) {
+                int row = indexed + k;
+                added[k] = ((long) key(c, value(c, row)) << 32) | row;
+            }
+            Arrays.sort(added);
+
+            long[] old = sorted[c];
+            long[] merged = new long[old.length + tail];
+            int i = 0;
+            int j = 0;
+            for (int k = 0; k < merged.length; k++) {
+                merged[k] = j == tail || (i < old.length && old[i] <= added[j]) ? old[i++] : added[j++];
+            }
+            sorted[c] = merged;
+        }
+        indexed = size;
+    }
+
+    /**
+     * This method doubles the capacity of every column and bitmap.
+     */
+    private void grow() {
+        int capacity = creditScore.length * 2;
+        creditScore = Arrays.copyOf(creditScore, capacity);
+        debtToIncome = Arrays.copyOf(debtToIncome, capacity);
+        apr = Arrays.copyOf(apr, capacity);
+        principal = Arrays.copyOf(principal, capacity);
+        years = Arrays.copyOf(years, capacity);
+        approved = Arrays.copyOf(approved, capacity / 64);
+        for (int y = 0; y < termRows.length; y++) {
+            if (termRows[y] != null) {
+                termRows[y] = Arrays.copyOf(termRows[y], capacity / 64);
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package cpsc2150.banking.models;
+
+import java.math.BigInteger;
+
+/**
+ * This class does mortgage arithmetic on exact scaled integers: amounts are long cents and annual rates
+ * are long millionths (RATE_SCALE), so 3.75% is 37500. A monthly rate is never rounded on its own; each
+ * month's interest is balance * apr / (12 * RATE_SCALE) rounded once to the cent, half to even.
+ *
+ * The level payment is the exact value of Principal * r / (1 - (1 + r)^-n), rounded half to even to the
+ * cent. It is worked out in double first, which is exact to far less than a cent; only when that lands
+ * within a hair of half a cent is it worked out again exactly with BigInteger, so the rounding is always
+ * right and almost always cheap.
+ *
+ * Every result depends only on the inputs, so the same loan gives the same cents on any machine, and a
+ * schedule built from these values ends at exactly 0.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ */
+public final class FixedPointMoney {
+    public static final long CENTS_PER_DOLLAR = 100;
+    public static final long RATE_SCALE = 1000000;
+    // Monthly interest is balance * apr / MONTHLY_DIVISOR
+    static final long MONTHLY_DIVISOR = RATE_SCALE * IMortgage.MONTHS_IN_YEAR;
+    // Largest cents amount converted from a double exactly
+    private static final double MAX_CENTS = 1L << 53;
+
+    private FixedPointMoney() {}
+
+    /**
+     * This method converts dollars to cents, rounding half to even.
+     *
+     * @param dollars the amount
+     * @return the amount in cents
+     * @throws ArithmeticException if dollars is NaN or too large to hold exactly
+     */
+    public static long toCents(double dollars) {
+        double cents = Math.rint(dollars * CENTS_PER_DOLLAR);
+        if (!(Math.abs(cents) <= MAX_CENTS)) {
+            throw new ArithmeticException("not a cents amount: " + dollars);
+        }
+        return (long) cents;
+    }
+
+    /**
+     * @return cents as dollars, the nearest double
+     */
+    public static double toDollars(long cents) {
+        return cents / (double) CENTS_PER_DOLLAR;
+    }
+
+    /**
+     * This method converts a rate such as an APR to millionths, rounding half to even.
+     *
+     * @param rate the rate, such as .0375
+     * @return the rate in millionths, such as 37500
+     * @throws ArithmeticException if rate is NaN or out of range
+     */
+    public static long toRateUnits(double rate) {
+        double units = Math.rint(rate * RATE_SCALE);
+        if (!(Math.abs(units) <= MAX_CENTS)) {
+            throw new ArithmeticException("not a rate: " + rate);
+        }
+        return (long) units;
+    }
+
+    /**
+     * This method returns one month's interest on a balance.
+     *
+     * @param balanceCents the balance, in cents
+     * @param aprUnits the APR, in millionths
+     * @return balance * apr / 12, rounded half to even to the cent
+     * @throws ArithmeticException if balance * apr does not fit in a long
+     * @pre aprUnits >= 0
+     */
+    public static long monthlyInterest(long balanceCents, long aprUnits) {
+        return divideHalfEven(Math.multiplyExact(balanceCents, aprUnits), MONTHLY_DIVISOR);
+    }
+
+    /**
+     * This method returns the level monthly payment that pays off a loan.
+     *
+     * @param principalCents the amount of the loan, in cents
+     * @param aprUnits the APR, in millionths
+     * @param numberOfPayments the number of monthly payments
+     * @return Principal * r / (1 - (1 + r)^-n) with r = apr / 12, rounded half to even to the cent; the
+     *         principal divided evenly if the APR is 0, and the whole principal if there are no payments
+     * @throws ArithmeticException if the payment does not fit in a long
+     * @pre principalCents >= 0 AND aprUnits >= 0 AND numberOfPayments >= 0
+     */
+    public static long payment(long principalCents, long aprUnits, int numberOfPayments) {
+        if (numberOfPayments <= 0) {
+            return principalCents;
+        }
+        if (aprUnits == 0) {
+            return divideHalfEven(principalCents, numberOfPayments);
+        }
+        double rate = aprUnits / (double) MONTHLY_DIVISOR;
+        //1 - (1 + rate)^-n, written so nothing close to 1 is subtracted from 1
+        double factor = -Math.expm1(-numberOfPayments * Math.log1p(rate));
+        double estimate = principalCents * rate / factor;
+        double floor = Math.floor(estimate);
+        double fraction = estimate - floor;
+        //The estimate is good to about 1e-13 of itself; only a value that close to a half cent is unsure
+        double doubt = Math.max(1e-7, estimate * 1e-12);
+        if (estimate < MAX_CENTS && Math.abs(fraction - 0.5) > doubt) {
+            return (long) floor + (fraction > 0.5 ? 1 : 0);
+        }
+        return exactPayment(principalCents, aprUnits, numberOfPayments);
+    }
+
+    /**
+     * This method works out the payment exactly. With r = a / D, the payment is
+     * Principal * a * (D + a)^n / (D * ((D + a)^n - D^n)).
+     */
+    static long exactPayment(long principalCents, long aprUnits, int numberOfPayments) {
+        BigInteger d = BigInteger.valueOf(MONTHLY_DIVISOR);
+        BigInteger grown = d.add(BigInteger.valueOf(aprUnits)).pow(numberOfPayments);
+        BigInteger numerator = BigInteger.valueOf(principalCents).multiply(BigInteger.valueOf(aprUnits)).multiply(grown);
+        BigInteger denominator = d.multiply(grown.subtract(d.pow(numberOfPayments)));
+        BigInteger[] qr = numerator.divideAndRemainder(denominator);
+        int half = qr[1].shiftLeft(1).compareTo(denominator);
+        BigInteger q = qr[0];
+        if (half > 0 || (half == 0 && q.testBit(0))) {
+            q = q.add(BigInteger.ONE);
+        }
+        return q.longValueExact();
+    }
+
+    /**
+     * This method divides and rounds half to even.
+     *
+     * @param numerator the dividend
+     * @param denominator the divisor
+     * @return numerator / denominator, rounded half to even
+     * @pre denominator > 0
+     */
+    public static long divideHalfEven(long numerator, long denominator) {
+        long q = Math.floorDiv(numerator, denominator);
+        long r = numerator - q * denominator;
+        //0 <= r < denominator, so compare r with denominator - r rather than doubling r
+        long other = denominator - r;
+        if (r > other || (r == other && (q & 1) != 0)) {
+            q++;
+        }
+        return q;
+    }
+}
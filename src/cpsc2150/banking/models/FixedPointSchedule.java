@@ -0,0 +1,132 @@
+package cpsc2150.banking.models;
+
+/**
+ * This class walks the amortization schedule of one loan in exact cents. Each month's interest is
+ * rounded once to the cent by FixedPointMoney, the rest of the payment comes off the balance, and the
+ * final row pays off what is left, so the principal paid over the whole schedule adds up to exactly the
+ * principal and nothing drifts no matter how many months there are. A schedule paid off early by the
+ * rounded-up payment ends on the row that pays it off, with that row's real Month.
+ *
+ * The double getters return the cents in dollars, so it can be used anywhere an AmortizationSchedule is.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines:
+ *      Month: Z - the current row, 1 for the first payment, 0 before next() is called
+ *      BalanceCents: Z - the principal still owed after the current row, in cents
+ *
+ * @invariant 0 <= Month <= NumberOfPayments AND 0 <= BalanceCents
+ */
+public class FixedPointSchedule extends AmortizationSchedule {
+    private final long aprUnits;
+    private final long levelPaymentCents;
+    private final int numberOfPayments;
+
+    private int month;
+    private long paymentCents;
+    private long interestCents;
+    private long principalPaidCents;
+    private long balanceCents;
+
+    /**
+     * Constructor that starts a schedule before its first payment.
+     *
+     * @param principalCents the amount of the loan, in cents
+     * @param aprUnits the APR, in FixedPointMoney.RATE_SCALE units
+     * @param paymentCents the level monthly payment, in cents
+     * @param numberOfPayments the number of monthly payments
+     * @pre principalCents > 0 AND aprUnits >= 0 AND paymentCents > 0 AND numberOfPayments >= 0
+     * @post Month = 0 AND BalanceCents = principalCents
+     */
+    public FixedPointSchedule(long principalCents, long aprUnits, long paymentCents, int numberOfPayments) {
+        super(FixedPointMoney.toDollars(principalCents), aprUnits / (double) FixedPointMoney.MONTHLY_DIVISOR,
+                FixedPointMoney.toDollars(paymentCents), numberOfPayments);
+        this.aprUnits = aprUnits;
+        this.levelPaymentCents = paymentCents;
+        this.numberOfPayments = numberOfPayments;
+        this.balanceCents = principalCents;
+    }
+
+    /**
+     * This method moves to the next row of the schedule.
+     *
+     * @return true if there was another row, false once every payment has been made or the balance is paid off
+     * @post [if there was another row, Month = #Month + 1 and the getters describe it]
+     */
+    @Override
+    public boolean next() {
+        if (month >= numberOfPayments || balanceCents == 0) {
+            return false;
+        }
+        month++;
+        interestCents = FixedPointMoney.monthlyInterest(balanceCents, aprUnits);
+        if (month == numberOfPayments || levelPaymentCents - interestCents >= balanceCents) {
+            //Last row: pay off exactly what is left
+            principalPaidCents = balanceCents;
+            paymentCents = interestCents + balanceCents;
+            balanceCents = 0;
+        } else {
+            principalPaidCents = levelPaymentCents - interestCents;
+            paymentCents = levelPaymentCents;
+            balanceCents -= principalPaidCents;
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of the current row, starting at 1
+     */
+    @Override
+    public int getMonth() {
+        return month;
+    }
+
+    /**
+     * @return the payment for the current month, in cents
+     */
+    public long getPaymentCents() {
+        return paymentCents;
+    }
+
+    /**
+     * @return the interest for the current month, in cents
+     */
+    public long getInterestCents() {
+        return interestCents;
+    }
+
+    /**
+     * @return the principal paid in the current month, in cents
+     */
+    public long getPrincipalPaidCents() {
+        return principalPaidCents;
+    }
+
+    /**
+     * @return the remaining balance, in cents
+     */
+    public long getBalanceCents() {
+        return balanceCents;
+    }
+
+    @Override
+    public double getPayment() {
+        return FixedPointMoney.toDollars(paymentCents);
+    }
+
+    @Override
+    public double getInterest() {
+        return FixedPointMoney.toDollars(interestCents);
+    }
+
+    @Override
+    public double getPrincipalPaid() {
+        return FixedPointMoney.toDollars(principalPaidCents);
+    }
+
+    @Override
+    public double getBalance() {
+        return FixedPointMoney.toDollars(balanceCents);
+    }
+}
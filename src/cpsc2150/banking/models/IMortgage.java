@@ -102,4 +102,51 @@ public interface IMortgage {
      */
     int getYears();
 
+    /**
+     * This method returns the ratio of the customer's total monthly debt, including this loan, to their monthly income.
+     *
+     * @return the debt to income ratio
+     *
+     * @post getDebtToIncomeRatio = DebtToIncomeRatio AND
+     *          Payment = #Payment AND Rate = #Rate AND Customer = #Customer AND DebtToIncomeRatio = #DebtToIncomeRatio AND
+     *          Principal = #Principal AND NumberOfPayments = #NumberOfPayments AND PercentDown = #PercentDown
+     */
+    double getDebtToIncomeRatio();
+
+    /**
+     * This method returns the percent of the house cost covered by the down payment.
+     *
+     * @return the percent down
+     *
+     * @post getPercentDown = PercentDown AND
+     *          Payment = #Payment AND Rate = #Rate AND Customer = #Customer AND DebtToIncomeRatio = #DebtToIncomeRatio AND
+     *          Principal = #Principal AND NumberOfPayments = #NumberOfPayments AND PercentDown = #PercentDown
+     */
+    double getPercentDown();
+
+    /**
+     * This method returns the customer the loan is for.
+     *
+     * @return the customer
+     *
+     * @post getCustomer = Customer AND
+     *          Payment = #Payment AND Rate = #Rate AND Customer = #Customer AND DebtToIncomeRatio = #DebtToIncomeRatio AND
+     *          Principal = #Principal AND NumberOfPayments = #NumberOfPayments AND PercentDown = #PercentDown
+     */
+    ICustomer getCustomer();
+
+    /**
+     * This method returns the month-by-month amortization schedule of the loan. The rows are computed
+     * one at a time as the schedule is walked, so nothing is stored.
+     *
+     * @return a schedule positioned before the first payment
+     *
+     * @post [getSchedule walks NumberOfPayments rows, starting at Principal and ending at a balance of 0] AND
+     *          Payment = #Payment AND Rate = #Rate AND Customer = #Customer AND DebtToIncomeRatio = #DebtToIncomeRatio AND
+     *          Principal = #Principal AND NumberOfPayments = #NumberOfPayments AND PercentDown = #PercentDown
+     */
+    default AmortizationSchedule getSchedule() {
+        return new AmortizationSchedule(getPrincipal(), getRate() / MONTHS_IN_YEAR, getPayment(), getYears() * MONTHS_IN_YEAR);
+    }
+
 }
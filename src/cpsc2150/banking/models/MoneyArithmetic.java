@@ -0,0 +1,23 @@
+package cpsc2150.banking.models;
+
+/**
+ * This enum selects how a Mortgage computes money.
+ *
+ *      DOUBLE          the payment formula in double, as Mortgage always has
+ *      FIXED_POINT     exact long cents and rates in millionths through FixedPointMoney, with the payment
+ *                      rounded to the cent and an exact FixedPointSchedule
+ *
+ * CONFIGURED is FIXED_POINT when the JVM runs with -Dbanking.money=fixed, and DOUBLE otherwise. It only
+ * selects how the Mortgage constructor without an arithmetic prices, and so UnderwritingEngine and everything
+ * built on Mortgage objects. Mortgage.quote(), MortgageColumns, RepricingIndex and StressTest always price in
+ * DOUBLE.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ */
+public enum MoneyArithmetic {
+    DOUBLE, FIXED_POINT;
+
+    public static final MoneyArithmetic CONFIGURED =
+            "fixed".equalsIgnoreCase(System.getProperty("banking.money")) ? FIXED_POINT : DOUBLE;
+}
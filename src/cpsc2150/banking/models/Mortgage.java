@@ -11,7 +11,8 @@ import java.lang.*;
  *
  * @Correspondence IMortgage interface provides the constant comparison values
  *              and method declarations for the implementation to determine
- *              the correct APR/Rate depending on the time period.
+ *              the correct APR/Rate depending on the time period. The values are
+ *              compiled into the RatePolicy in effect when the Mortgage is created.
  */
 
 public class Mortgage extends AbsMortgage implements IMortgage {
@@ -31,6 +32,16 @@ public class Mortgage extends AbsMortgage implements IMortgage {
     private int NumberOfPayments;
     //PercentDown : R - The percent of the house cost covered by the down payment
     private double PercentDown;
+    //Policy: the rate policy the loan was priced and is approved with
+    private RatePolicy Policy;
+    //Money: how the Principal, Payment and DebtToIncomeRatio are computed
+    private MoneyArithmetic Money;
+    //PrincipalCents: Z - Principal in cents, exact under FIXED_POINT
+    private long PrincipalCents;
+    //PaymentCents: Z - Payment in cents, exact under FIXED_POINT
+    private long PaymentCents;
+    //AprUnits: Z - APR in FixedPointMoney.RATE_SCALE units, used under FIXED_POINT
+    private long AprUnits;
     /**
      * This constructor takes in the values of the total cost of the Home, the down payment on the loan,
      * the number of years they will take to repay the loan and the customer, and updates the customer name, APR,
@@ -45,15 +56,40 @@ public class Mortgage extends AbsMortgage implements IMortgage {
      * @param customer The customer associated with the loan
      *
      * @post
-     *      Cus = #customer AND APR = #APR AND Principal = #Principal AND PercentDown = #PercentDown AND
+     *      Cus = #customer AND Policy = RatePolicy.current() AND APR = #APR AND Principal = #Principal AND PercentDown = #PercentDown AND
      *      NumberOfPayments = #NumberOfPayments AND Rate = #Rate AND Payment = #Payment
      *      AND DebtToIncomeRatio = #DebtToIncomeRatio
      */
     public Mortgage(double costOfHome, double downPayment, int numOfYears, ICustomer customer) {
+        this(costOfHome, downPayment, numOfYears, customer, MoneyArithmetic.CONFIGURED);
+    }
+
+    /**
+     * This constructor prices the loan like the one above, computing money the way arithmetic says.
+     * Under FIXED_POINT the house cost, down payment, income and debt are rounded to cents, and the
+     * Payment is the exact level payment rounded to the cent by FixedPointMoney.
+     *
+     * @pre costOfHome = #costOfHome AND downPayment = #downPayment AND numOfYears = #numOfYears AND customer = #customer
+     *      AND arithmetic != null
+     *
+     * @param costOfHome The total cost of the Home
+     * @param downPayment The down payment on the loan
+     * @param numOfYears The number of years they will take to repay the loan
+     * @param customer The customer associated with the loan
+     * @param arithmetic how money is computed
+     *
+     * @post
+     *      Cus = #customer AND Money = arithmetic AND Policy = RatePolicy.current() AND [APR, Principal, PercentDown,
+     *      NumberOfPayments, Rate, Payment and DebtToIncomeRatio are set as in the constructor above, with
+     *      Principal, Payment and DebtToIncomeRatio computed in cents under FIXED_POINT]
+     */
+    public Mortgage(double costOfHome, double downPayment, int numOfYears, ICustomer customer, MoneyArithmetic arithmetic) {
         //Sets Customer Cus Object = new Customer customer
         Cus = customer;
-        //Sets APR = BASERATE (.025)
-        APR = BASERATE;
+        //Sets Money to the arithmetic the loan is priced with
+        Money = arithmetic;
+        //Sets Policy to the rate policy in effect right now, so the whole loan is priced by one set of rules
+        Policy = RatePolicy.current();
         //Sets Principal equal to the CostOfHome - downPayment
         Principal = costOfHome - downPayment;
         //Sets PercentDown equal to downPayment divided by costOfHome
@@ -61,57 +97,82 @@ public class Mortgage extends AbsMortgage implements IMortgage {
         //Sets NumberOfPayments equal to numOfYears * MONTHS_IN_YEAR (12)
         NumberOfPayments = numOfYears * MONTHS_IN_YEAR;
 
-        //if numOfYears is less than 30
-        if (numOfYears < MAX_YEARS) {
-            //Add 0.5% to the APR
-            APR += GOODRATEADD;
-        }
-        //else if numOfYears is greater than or equal to 30
-        else {
-            //Add 1% to the APR
-            APR += NORMALRATEADD;
+        //Looks up the term, percent down, and credit score tiers in the policy's tables
+        int tier = Policy.tier(numOfYears, PercentDown, Cus.getCreditScore());
+        //Sets APR to BASERATE plus the add-ons for those tiers
+        APR = Policy.apr(tier);
+        //Updates Rate using the updated APR
+        Rate = Policy.rate(tier);
+        if (Money == MoneyArithmetic.FIXED_POINT) {
+            //Works in exact cents: the principal, the level payment rounded to the cent, and the ratio from those
+            PrincipalCents = FixedPointMoney.toCents(costOfHome) - FixedPointMoney.toCents(downPayment);
+            Principal = FixedPointMoney.toDollars(PrincipalCents);
+            AprUnits = FixedPointMoney.toRateUnits(APR);
+            PaymentCents = FixedPointMoney.payment(PrincipalCents, AprUnits, NumberOfPayments);
+            Payment = FixedPointMoney.toDollars(PaymentCents);
+            long monthlyDebtCents = FixedPointMoney.toCents(Cus.getMonthlyDebtPayments());
+            DebtToIncomeRatio = (double) ((PaymentCents + monthlyDebtCents) * MONTHS_IN_YEAR) / FixedPointMoney.toCents(Cus.getIncome());
+        } else {
+            //Sets Payment value using the payment formula with updated parameters
+            //The annuity factor 1 - (1 + Rate)^-NumberOfPayments comes from the precomputed table when it can
+            Payment = (Rate * Principal) / Policy.annuityFactor(tier, Rate, numOfYears);
+            //Sets The Debt to income ratio = debt for the month or year/ Gross income for the month or year
+            DebtToIncomeRatio = ((Payment + Cus.getMonthlyDebtPayments()) / (Cus.getIncome() / MONTHS_IN_YEAR));
         }
+    }
 
-        //if PercentDown is less than 20%
-        if (PercentDown < PREFERRED_PERCENT_DOWN) {
-            //Add 0.5% to the APR
-            APR += GOODRATEADD;
-        }
-        else {
-            APR += 0;
-        }
+    /**
+     * This method prices a loan exactly as the constructor and loanApproved() would with DOUBLE arithmetic and
+     * the current rate policy, but from primitive values and into a result the caller owns, so it creates no
+     * objects.
+     *
+     * @param costOfHome The total cost of the Home
+     * @param downPayment The down payment on the loan
+     * @param numOfYears The number of years they will take to repay the loan
+     * @param income The customer's yearly income
+     * @param monthlyDebt The customer's monthly debt payments
+     * @param creditScore The customer's credit score
+     * @param result where the quote is written
+     * @return true iff the loan is approved
+     *
+     * @pre result != null
+     * @post [result holds the APR, Rate, Payment, DebtToIncomeRatio, Principal, PercentDown and approval
+     *          new Mortgage(costOfHome, downPayment, numOfYears, customer) would have]
+     */
+    public static boolean quote(double costOfHome, double downPayment, int numOfYears, double income,
+                                double monthlyDebt, int creditScore, MortgageQuote result) {
+        return quote(costOfHome, downPayment, numOfYears, income, monthlyDebt, creditScore,
+                RatePolicy.current(), result);
+    }
 
-        //if customer's credit score is less than 500
-        if (Cus.getCreditScore() < BADCREDIT) {
-            //Add 10% to the APR
-            APR += VERYBADRATEADD;
-        }
-        //else if customer's credit score is greater than 500 but less than 600
-        else if ((Cus.getCreditScore() >= BADCREDIT) && (Cus.getCreditScore() < FAIRCREDIT)) {
-            //Add 5% to the APR
-            APR += BADRATEADD;
-        }
-        //else if customer's credit score is greater than 600 but less than 700
-        else if ((Cus.getCreditScore() >= FAIRCREDIT) && (Cus.getCreditScore() < GOODCREDIT)) {
-            //Add 1% to the APR
-            APR += NORMALRATEADD;
-        }
-        //else if customer's credit score is greater than 700 but less than 750
-        else if ((Cus.getCreditScore() >= GOODCREDIT) && (Cus.getCreditScore() < GREATCREDIT)) {
-            //Add 0.5% to the APR
-            APR += GOODRATEADD;
-        }
-        //else, if customer's credit score is greater than 750 but less than 850
-        else if ((Cus.getCreditScore() >= GREATCREDIT) && (Cus.getCreditScore() <= Cus.MAX_CREDIT_SCORE)) {
-            //Add 0% to the APR
-            APR += 0;
-        }
-        //Updates Rate using the updated APR
-        Rate = APR / MONTHS_IN_YEAR;
-        //Sets Payment value using the payment formula with updated parameters
-        Payment = (Rate * Principal) / (1 - Math.pow((1 + Rate), -(NumberOfPayments)));
-        //Sets The Debt to income ratio = debt for the month or year/ Gross income for the month or year
-        DebtToIncomeRatio = ((Payment + Cus.getMonthlyDebtPayments()) / (Cus.getIncome() / MONTHS_IN_YEAR));
+    /**
+     * This method prices a loan with a given rate policy into a result the caller owns.
+     *
+     * @param costOfHome The total cost of the Home
+     * @param downPayment The down payment on the loan
+     * @param numOfYears The number of years they will take to repay the loan
+     * @param income The customer's yearly income
+     * @param monthlyDebt The customer's monthly debt payments
+     * @param creditScore The customer's credit score
+     * @param policy the rate policy to price with
+     * @param result where the quote is written
+     * @return true iff the loan is approved
+     *
+     * @pre policy != null AND result != null
+     * @post [result holds the quote, computed in the same order as the constructor]
+     */
+    public static boolean quote(double costOfHome, double downPayment, int numOfYears, double income,
+                                double monthlyDebt, int creditScore, RatePolicy policy, MortgageQuote result) {
+        double principal = costOfHome - downPayment;
+        double percentDown = (downPayment / costOfHome);
+        int tier = policy.tier(numOfYears, percentDown, creditScore);
+        double apr = policy.apr(tier);
+        double rate = policy.rate(tier);
+        double payment = (rate * principal) / policy.annuityFactor(tier, rate, numOfYears);
+        double debtToIncomeRatio = ((payment + monthlyDebt) / (income / MONTHS_IN_YEAR));
+        boolean isApproved = policy.approved(apr, percentDown, debtToIncomeRatio);
+        result.set(apr, rate, payment, debtToIncomeRatio, principal, percentDown, isApproved);
+        return isApproved;
     }
 
     /**
@@ -125,7 +186,7 @@ public class Mortgage extends AbsMortgage implements IMortgage {
      */
     public boolean loanApproved() {
         boolean isApproved = false;
-        if (((APR) < RATETOOHIGH) && ((PercentDown) >= (MIN_PERCENT_DOWN)) && ((DebtToIncomeRatio) <= (DTOITOOHIGH))) {
+        if (Policy.approved(APR, PercentDown, DebtToIncomeRatio)) {
             isApproved = true;
         }
         return isApproved;
@@ -181,4 +242,118 @@ public class Mortgage extends AbsMortgage implements IMortgage {
     public int getYears() {
         return (NumberOfPayments / MONTHS_IN_YEAR);
     }
+
+    /**
+     * This method returns the ratio of the customer's total monthly debt, including this loan, to their monthly income.
+     *
+     * @return the debt to income ratio
+     *
+     * @post getDebtToIncomeRatio = DebtToIncomeRatio AND
+     *          Payment = #Payment AND Rate = #Rate AND Customer = #Customer AND DebtToIncomeRatio = #DebtToIncomeRatio AND
+     *          Principal = #Principal AND NumberOfPayments = #NumberOfPayments AND PercentDown = #PercentDown
+     */
+    public double getDebtToIncomeRatio() {
+        return DebtToIncomeRatio;
+    }
+
+    /**
+     * This method returns the percent of the house cost covered by the down payment.
+     *
+     * @return the percent down
+     *
+     * @post getPercentDown = PercentDown AND
+     *          Payment = #Payment AND Rate = #Rate AND Customer = #Customer AND DebtToIncomeRatio = #DebtToIncomeRatio AND
+     *          Principal = #Principal AND NumberOfPayments = #NumberOfPayments AND PercentDown = #PercentDown
+     */
+    public double getPercentDown() {
+        return PercentDown;
+    }
+
+    /**
+     * This method returns the customer the loan is for.
+     *
+     * @return the customer
+     *
+     * @post getCustomer = Customer AND
+     *          Payment = #Payment AND Rate = #Rate AND Customer = #Customer AND DebtToIncomeRatio = #DebtToIncomeRatio AND
+     *          Principal = #Principal AND NumberOfPayments = #NumberOfPayments AND PercentDown = #PercentDown
+     */
+    public ICustomer getCustomer() {
+        return Cus;
+    }
+
+    /**
+     * This method returns the month-by-month amortization schedule of the loan, using the exact monthly Rate.
+     *
+     * @return a schedule positioned before the first payment
+     *
+     * @post [getSchedule walks NumberOfPayments rows, starting at Principal and ending at a balance of 0] AND
+     *          Payment = #Payment AND Rate = #Rate AND Customer = #Customer AND DebtToIncomeRatio = #DebtToIncomeRatio AND
+     *          Principal = #Principal AND NumberOfPayments = #NumberOfPayments AND PercentDown = #PercentDown
+     */
+    @Override
+    public AmortizationSchedule getSchedule() {
+        if (Money == MoneyArithmetic.FIXED_POINT) {
+            return new FixedPointSchedule(PrincipalCents, AprUnits, PaymentCents, NumberOfPayments);
+        }
+        return new AmortizationSchedule(Principal, Rate, Payment, NumberOfPayments);
+    }
+
+    /**
+     * This method returns the monthly payment in cents.
+     *
+     * @return PaymentCents under FIXED_POINT, otherwise Payment rounded half to even to the cent
+     *
+     * @post Payment = #Payment AND Rate = #Rate AND Customer = #Customer AND DebtToIncomeRatio = #DebtToIncomeRatio AND
+     *          Principal = #Principal AND NumberOfPayments = #NumberOfPayments AND PercentDown = #PercentDown
+     */
+    public long getPaymentCents() {
+        return Money == MoneyArithmetic.FIXED_POINT ? PaymentCents : FixedPointMoney.toCents(Payment);
+    }
+
+    /**
+     * This method returns the principal in cents.
+     *
+     * @return PrincipalCents under FIXED_POINT, otherwise Principal rounded half to even to the cent
+     *
+     * @post Payment = #Payment AND Rate = #Rate AND Customer = #Customer AND DebtToIncomeRatio = #DebtToIncomeRatio AND
+     *          Principal = #Principal AND NumberOfPayments = #NumberOfPayments AND PercentDown = #PercentDown
+     */
+    public long getPrincipalCents() {
+        return Money == MoneyArithmetic.FIXED_POINT ? PrincipalCents : FixedPointMoney.toCents(Principal);
+    }
+
+    /**
+     * This method returns the APR from the policy's tier table, the value loanApproved() judges, which
+     * getRate() can differ from by rounding.
+     *
+     * @return APR
+     *
+     * @post getApr = APR
+     */
+    double getApr() {
+        return APR;
+    }
+
+    /**
+     * This method returns the rate policy the loan was priced and is approved with.
+     *
+     * @return Policy
+     *
+     * @post getPolicy = Policy
+     */
+    RatePolicy getPolicy() {
+        return Policy;
+    }
+
+    /**
+     * This method returns how the loan's money was computed.
+     *
+     * @return Money
+     *
+     * @post getArithmetic = Money
+     */
+    public MoneyArithmetic getArithmetic() {
+        return Money;
+    }
 }
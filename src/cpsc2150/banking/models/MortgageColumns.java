@@ -0,0 +1,186 @@
+package cpsc2150.banking.models;
+
+/**
+ * This class prices a whole portfolio of mortgages stored as parallel arrays (one array per field)
+ * instead of as Customer and Mortgage objects. Row i of every array is one application.
+ * The rules are exactly the ones in the Mortgage constructor and Mortgage.loanApproved(),
+ * applied in the same order so every APR, payment and ratio matches to the last bit.
+ * Nothing is allocated per row.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines:
+ *      income, monthlyDebt, creditScore, houseCost, downPayment, years - the application inputs
+ *      apr, payment, debtToIncome - the pricing outputs
+ *      approved - a bitset where bit i is set iff row i was approved
+ *
+ * @invariant [every input and output array has at least size entries] AND approved.length * 64 >= size
+ */
+public class MortgageColumns {
+    private final int size;
+
+    //Inputs
+    public final double[] income;
+    public final double[] monthlyDebt;
+    public final int[] creditScore;
+    public final double[] houseCost;
+    public final double[] downPayment;
+    public final int[] years;
+
+    //Outputs
+    public final double[] apr;
+    public final double[] payment;
+    public final double[] debtToIncome;
+    public final long[] approved;
+
+    /**
+     * This constructor allocates empty columns for a fixed number of rows.
+     *
+     * @param size the number of rows
+     * @pre size >= 0
+     * @post [every column has size entries, all zero]
+     */
+    public MortgageColumns(int size) {
+        this.size = size;
+        income = new double[size];
+        monthlyDebt = new double[size];
+        creditScore = new int[size];
+        houseCost = new double[size];
+        downPayment = new double[size];
+        years = new int[size];
+        apr = new double[size];
+        payment = new double[size];
+        debtToIncome = new double[size];
+        approved = new long[(size + 63) >>> 6];
+    }
+
+    /**
+     * This method returns the number of rows.
+     * @return the number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * This method fills in the inputs for one row.
+     *
+     * @pre 0 <= row < size
+     * @post [row holds the given inputs]
+     */
+    public void set(int row, double inc, double debt, int score, double cost, double down, int numOfYears) {
+        income[row] = inc;
+        monthlyDebt[row] = debt;
+        creditScore[row] = score;
+        houseCost[row] = cost;
+        downPayment[row] = down;
+        years[row] = numOfYears;
+    }
+
+    /**
+     * This method prices every row.
+     * @post [apr, payment, debtToIncome and approved are filled in for rows 0 to size-1]
+     */
+    public void evaluate() {
+        evaluate(0, size);
+    }
+
+    /**
+     * This method prices the rows from (inclusive) to (exclusive). Ranges that start on a multiple of 64
+     * write to separate words of approved, so different threads can evaluate them at the same time.
+     *
+     * @param from the first row to price
+     * @param to one past the last row to price
+     * @pre 0 <= from <= to <= size
+     * @post [apr, payment, debtToIncome and approved are filled in for rows from to to-1]
+     */
+    public void evaluate(int from, int to) {
+        //Every row in the range is priced with the same policy, even if a new one is installed part way through
+        evaluate(from, to, RatePolicy.current());
+    }
+
+    /**
+     * This method prices the rows from (inclusive) to (exclusive) with a given policy instead of the current one.
+     *
+     * @param from the first row to price
+     * @param to one past the last row to price
+     * @param policy the policy to price with
+     * @pre 0 <= from <= to <= size AND policy != null
+     * @post [apr, payment, debtToIncome and approved are filled in for rows from to to-1]
+     */
+    public void evaluate(int from, int to, RatePolicy policy) {
+        for (int i = from; i < to; i++) {
+            evaluateRow(i, policy);
+        }
+    }
+
+    /**
+     * This method prices one row with a policy.
+     *
+     * @param i the row
+     * @param policy the policy to price with
+     * @return true iff the row is approved
+     * @pre 0 <= i < size AND policy != null
+     * @post [apr, payment, debtToIncome and approved are filled in for row i]
+     */
+    boolean evaluateRow(int i, RatePolicy policy) {
+        double principal = houseCost[i] - downPayment[i];
+        double percentDown = downPayment[i] / houseCost[i];
+
+        //The policy's tables pick the APR, added up in the Mortgage constructor's order
+        int tier = policy.tier(years[i], percentDown, creditScore[i]);
+        double a = policy.apr(tier);
+        double rate = policy.rate(tier);
+        double p = (rate * principal) / policy.annuityFactor(tier, rate, years[i]);
+        double dti = ((p + monthlyDebt[i]) / (income[i] / IMortgage.MONTHS_IN_YEAR));
+
+        apr[i] = a;
+        payment[i] = p;
+        debtToIncome[i] = dti;
+
+        boolean isApproved = policy.approved(a, percentDown, dti);
+        setApproved(i, isApproved);
+        return isApproved;
+    }
+
+    /**
+     * This method sets or clears the approved bit of one row.
+     *
+     * @param i the row
+     * @param isApproved the new value
+     * @pre 0 <= i < size
+     * @post loanApproved(i) = isApproved
+     */
+    void setApproved(int i, boolean isApproved) {
+        long bit = 1L << i;
+        if (isApproved) {
+            approved[i >>> 6] |= bit;
+        } else {
+            approved[i >>> 6] &= ~bit;
+        }
+    }
+
+    /**
+     * This method checks whether a row was approved.
+     *
+     * @param row the row to check
+     * @return true iff the row was approved the last time it was evaluated
+     * @pre 0 <= row < size
+     */
+    public boolean loanApproved(int row) {
+        return (approved[row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * This method counts the approved rows.
+     * @return the number of approved rows
+     */
+    public int approvedCount() {
+        int count = 0;
+        for (long word : approved) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
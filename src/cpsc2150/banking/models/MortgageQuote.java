@@ -0,0 +1,97 @@
+package cpsc2150.banking.models;
+
+/**
+ * This class holds the result of Mortgage.quote(). It is meant to be owned by the caller and filled in
+ * again for every quote, so pricing a loan this way creates no objects. It is not safe to share between
+ * threads that quote at the same time.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines:
+ *      APR: R - the annual percentage rate of the last quote
+ *      Rate: R - the monthly rate of the last quote
+ *      Payment: R - the monthly payment of the last quote
+ *      DebtToIncomeRatio: R - the debt to income ratio of the last quote, including the payment
+ *      Principal: R - the principal of the last quote
+ *      PercentDown: R - the percent down of the last quote
+ *      Approved: the approval of the last quote
+ *
+ * @initialization_ensures APR = 0 AND Rate = 0 AND Payment = 0 AND DebtToIncomeRatio = 0 AND Principal = 0
+ *      AND PercentDown = 0 AND Approved = false
+ */
+public final class MortgageQuote {
+    private double apr;
+    private double rate;
+    private double payment;
+    private double debtToIncomeRatio;
+    private double principal;
+    private double percentDown;
+    private boolean approved;
+
+    void set(double apr, double rate, double payment, double debtToIncomeRatio, double principal,
+             double percentDown, boolean approved) {
+        this.apr = apr;
+        this.rate = rate;
+        this.payment = payment;
+        this.debtToIncomeRatio = debtToIncomeRatio;
+        this.principal = principal;
+        this.percentDown = percentDown;
+        this.approved = approved;
+    }
+
+    /**
+     * @return APR, the annual percentage rate
+     */
+    public double getApr() {
+        return apr;
+    }
+
+    /**
+     * @return Rate * 12, the same value Mortgage.getRate() returns
+     */
+    public double getRate() {
+        return rate * IMortgage.MONTHS_IN_YEAR;
+    }
+
+    /**
+     * @return Payment, the monthly payment
+     */
+    public double getPayment() {
+        return payment;
+    }
+
+    /**
+     * @return DebtToIncomeRatio, the debt to income ratio including the payment
+     */
+    public double getDebtToIncomeRatio() {
+        return debtToIncomeRatio;
+    }
+
+    /**
+     * @return Principal, the amount of the loan
+     */
+    public double getPrincipal() {
+        return principal;
+    }
+
+    /**
+     * @return PercentDown, the percent of the house cost covered by the down payment
+     */
+    public double getPercentDown() {
+        return percentDown;
+    }
+
+    /**
+     * @return true iff the quoted loan is approved
+     */
+    public boolean loanApproved() {
+        return approved;
+    }
+
+    @Override
+    public String toString() {
+        return "APR: " + apr + ", payment: " + payment + ", debt to income: " + debtToIncomeRatio
+                + ", approved: " + approved;
+    }
+}
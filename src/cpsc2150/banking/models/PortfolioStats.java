@@ -0,0 +1,289 @@
+package cpsc2150.banking.models;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.*;
+
+/**
+ * This class gathers portfolio-wide numbers over a stream of decisions in one pass and in constant memory:
+ * approval rate by credit band, total and mean principal, payment and debt to income histograms, and why
+ * loans were rejected. Every field is a primitive counter, and two instances can be merged, so a parallel
+ * stream gives each thread its own instance and combines them at the end:
+ *
+ *      PortfolioStats stats = PortfolioStats.of(mortgages.parallelStream());
+ *
+ * A rejected loan can fail more than one rule, so it is counted under every rule it failed. A Mortgage is
+ * judged by the RatePolicy it was priced with, so its reasons always agree with loanApproved(); columns and
+ * other decisions are judged by the policy the statistics were created with. of(...) captures one policy
+ * and hands it to every per-thread instance, so a policy installed during a run does not split the bands.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines:
+ *      Count: Z - the number of decisions seen
+ *      Approved: Z - the number that were approved
+ */
+public class PortfolioStats implements Consumer<IMortgage> {
+    // Payment histogram: PAYMENT_BUCKET dollars per bucket, the last bucket holds everything above
+    public static final double PAYMENT_BUCKET = 250;
+    public static final int PAYMENT_BUCKETS = 41;
+    // Debt to income histogram: DTI_BUCKET per bucket, the last bucket holds everything above
+    public static final double DTI_BUCKET = .05;
+    public static final int DTI_BUCKETS = 21;
+
+    private final RatePolicy policy;
+
+    private long count;
+    private long approved;
+    private final long[] countByBand = new long[AnnuityTable.CREDIT_TIERS];
+    private final long[] approvedByBand = new long[AnnuityTable.CREDIT_TIERS];
+    private double totalPrincipal;
+    private double approvedPrincipal;
+    private final long[] paymentHistogram = new long[PAYMENT_BUCKETS];
+    private final long[] dtiHistogram = new long[DTI_BUCKETS];
+    private long rejectedForRate;
+    private long rejectedForDownPayment;
+    private long rejectedForDti;
+
+    /**
+     * Constructor for empty statistics under the current rate policy.
+     * @post Count = 0
+     */
+    public PortfolioStats() {
+        this(RatePolicy.current());
+    }
+
+    /**
+     * Constructor for empty statistics under a given rate policy.
+     * @param policy the policy that sets the credit bands and judges decisions that carry no policy of their own
+     * @pre policy != null
+     * @post Count = 0
+     */
+    public PortfolioStats(RatePolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * This method gathers statistics over a stream, in parallel if the stream is parallel.
+     *
+     * @param mortgages the decisions
+     * @return the statistics for every decision in the stream
+     */
+    public static PortfolioStats of(Stream<? extends IMortgage> mortgages) {
+        RatePolicy policy = RatePolicy.current();
+        return mortgages.collect(() -> new PortfolioStats(policy), PortfolioStats::accept, PortfolioStats::combine);
+    }
+
+    /**
+     * This method gathers statistics over rows of a MortgageColumns, splitting the rows across the
+     * common fork-join pool.
+     *
+     * @param columns the evaluated columns
+     * @return the statistics for every row
+     * @pre [columns has been evaluated]
+     */
+    public static PortfolioStats of(MortgageColumns columns) {
+        RatePolicy policy = RatePolicy.current();
+        return IntStream.range(0, columns.size()).parallel()
+                .collect(() -> new PortfolioStats(policy), (stats, row) -> stats.accept(columns, row),
+                        PortfolioStats::combine);
+    }
+
+    /**
+     * This method adds one decision.
+     * @param m the decision
+     * @post Count = #Count + 1
+     */
+    @Override
+    public void accept(IMortgage m) {
+        //A Mortgage is approved by its own policy and its tier's APR, so its reasons are judged by those too
+        RatePolicy rules = policy;
+        double apr = m.getRate();
+        if (m instanceof Mortgage) {
+            rules = ((Mortgage) m).getPolicy();
+            apr = ((Mortgage) m).getApr();
+        }
+        add(m.getCustomer().getCreditScore(), m.getPrincipal(), m.getPayment(), m.getDebtToIncomeRatio(),
+                apr, m.getPercentDown(), m.loanApproved(), rules);
+    }
+
+    /**
+     * This method adds one row of evaluated columns.
+     * @param columns the columns
+     * @param row the row
+     * @pre 0 <= row < columns.size() AND [the row has been evaluated]
+     * @post Count = #Count + 1
+     */
+    public void accept(MortgageColumns columns, int row) {
+        add(columns.creditScore[row], columns.houseCost[row] - columns.downPayment[row], columns.payment[row],
+                columns.debtToIncome[row], columns.apr[row], columns.downPayment[row] / columns.houseCost[row],
+                columns.loanApproved(row), policy);
+    }
+
+    /**
+     * This method merges another instance's counts into this one.
+     * @param other the statistics to merge
+     * @post [this holds the counts of both]
+     */
+    public void combine(PortfolioStats other) {
+        count += other.count;
+        approved += other.approved;
+        add(countByBand, other.countByBand);
+        add(approvedByBand, other.approvedByBand);
+        totalPrincipal += other.totalPrincipal;
+        approvedPrincipal += other.approvedPrincipal;
+        add(paymentHistogram, other.paymentHistogram);
+        add(dtiHistogram, other.dtiHistogram);
+        rejectedForRate += other.rejectedForRate;
+        rejectedForDownPayment += other.rejectedForDownPayment;
+        rejectedForDti += other.rejectedForDti;
+    }
+
+    private void add(int creditScore, double principal, double payment, double dti, double apr, double percentDown,
+                     boolean isApproved, RatePolicy rules) {
+        int band = policy.creditTier(creditScore);
+        count++;
+        countByBand[band]++;
+        totalPrincipal += principal;
+        paymentHistogram[bucket(payment, PAYMENT_BUCKET, PAYMENT_BUCKETS)]++;
+        dtiHistogram[bucket(dti, DTI_BUCKET, DTI_BUCKETS)]++;
+        if (isApproved) {
+            approved++;
+            approvedByBand[band]++;
+            approvedPrincipal += principal;
+        } else {
+            if (apr >= rules.getRateTooHigh()) {
+                rejectedForRate++;
+            }
+            if (percentDown < rules.getMinPercentDown()) {
+                rejectedForDownPayment++;
+            }
+            if (!(dti <= rules.getDtiTooHigh())) {
+                rejectedForDti++;
+            }
+        }
+    }
+
+    private static int bucket(double value, double width, int buckets) {
+        if (!(value >= 0)) {
+            return 0;
+        }
+        return (int) Math.min(value / width, buckets - 1);
+    }
+
+    private static void add(long[] into, long[] from) {
+        for (int i = 0; i < into.length; i++) {
+            into[i] += from[i];
+        }
+    }
+
+    /**
+     * @return Count, the number of decisions seen
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return Approved, the number of decisions that were approved
+     */
+    public long getApproved() {
+        return approved;
+    }
+
+    /**
+     * @return the fraction of decisions that were approved, or 0 if there were none
+     */
+    public double getApprovalRate() {
+        return count == 0 ? 0 : (double) approved / count;
+    }
+
+    /**
+     * @param band AnnuityTable.VERY_BAD_CREDIT through AnnuityTable.GREAT_CREDIT
+     * @return the fraction of decisions in that credit band that were approved, or 0 if there were none
+     */
+    public double getApprovalRate(int band) {
+        return countByBand[band] == 0 ? 0 : (double) approvedByBand[band] / countByBand[band];
+    }
+
+    /**
+     * @param band AnnuityTable.VERY_BAD_CREDIT through AnnuityTable.GREAT_CREDIT
+     * @return the number of decisions in that credit band
+     */
+    public long getCount(int band) {
+        return countByBand[band];
+    }
+
+    /**
+     * @return the principal of every decision
+     */
+    public double getTotalPrincipal() {
+        return totalPrincipal;
+    }
+
+    /**
+     * @return the principal of the approved decisions
+     */
+    public double getApprovedPrincipal() {
+        return approvedPrincipal;
+    }
+
+    /**
+     * @return the mean principal of every decision, or 0 if there were none
+     */
+    public double getMeanPrincipal() {
+        return count == 0 ? 0 : totalPrincipal / count;
+    }
+
+    /**
+     * @return a copy of the payment histogram; bucket i counts payments from i * PAYMENT_BUCKET
+     */
+    public long[] getPaymentHistogram() {
+        return paymentHistogram.clone();
+    }
+
+    /**
+     * @return a copy of the debt to income histogram; bucket i counts ratios from i * DTI_BUCKET
+     */
+    public long[] getDtiHistogram() {
+        return dtiHistogram.clone();
+    }
+
+    /**
+     * @return the number of rejected decisions whose APR was too high
+     */
+    public long getRejectedForRate() {
+        return rejectedForRate;
+    }
+
+    /**
+     * @return the number of rejected decisions whose down payment was too small
+     */
+    public long getRejectedForDownPayment() {
+        return rejectedForDownPayment;
+    }
+
+    /**
+     * @return the number of rejected decisions whose debt to income ratio was too high
+     */
+    public long getRejectedForDti() {
+        return rejectedForDti;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("Decisions: ").append(count).append('\n');
+        sb.append("Approved: ").append(approved).append('\n');
+        String[] bands = { "Very bad", "Bad", "Fair", "Good", "Great" };
+        for (int b = 0; b < bands.length; b++) {
+            sb.append(bands[b]).append(" credit approval rate: ").append(getApprovalRate(b)).append('\n');
+        }
+        sb.append("Mean principal: ").append(getMeanPrincipal()).append('\n');
+        sb.append("Rejected for rate: ").append(rejectedForRate).append('\n');
+        sb.append("Rejected for down payment: ").append(rejectedForDownPayment).append('\n');
+        sb.append("Rejected for debt to income: ").append(rejectedForDti).append('\n');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,379 @@
+package cpsc2150.banking.models;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class holds the rules that price and approve a Mortgage, compiled into flat lookup tables:
+ * a credit tier for every score from 0 to MAX_CREDIT_SCORE, a term tier for every year up to the long
+ * term, and the APR and annuity factors for every tier combination. Pricing a loan is then a few array
+ * reads instead of a chain of branches.
+ *
+ * A policy never changes once built. The policy every new Mortgage uses is swapped with install(),
+ * which is atomic: a Mortgage that is being priced keeps the policy it started with.
+ * The default policy uses the constants in IMortgage and prices exactly as those constants always have.
+ *
+ * Policies can be loaded from a properties file with these keys (missing keys keep the IMortgage value):
+ *      baseRate, shortTermAdd, longTermAdd, longTermYears, lowDownAdd, preferredPercentDown,
+ *      creditThresholds (4 ascending scores), creditAdds (5 rates, lowest tier first),
+ *      rateTooHigh, minPercentDown, dtiTooHigh
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @invariant creditTiers.length = MAX_CREDIT_SCORE + 1 AND termTiers.length = longTermYears + 1 AND
+ *            aprs.length = AnnuityTable.TIERS
+ */
+public final class RatePolicy {
+
+    private static final AtomicReference<RatePolicy> CURRENT = new AtomicReference<>(defaults());
+
+    // The rules as given
+    private final double baseRate;
+    private final double shortTermAdd;
+    private final double longTermAdd;
+    private final int longTermYears;
+    private final double lowDownAdd;
+    private final double preferredPercentDown;
+    private final int[] creditThresholds;
+    private final double[] creditAdds;
+    private final double rateTooHigh;
+    private final double minPercentDown;
+    private final double dtiTooHigh;
+
+    // The rules compiled into tables
+    private final byte[] creditTiers;
+    private final byte[] termTiers;
+    private final double[] aprs;
+    private final double[] rates;
+    private final AnnuityTable annuities;
+
+    /**
+     * Constructor that compiles a set of rules into lookup tables.
+     *
+     * @param baseRate the APR every loan starts at
+     * @param shortTermAdd added for terms shorter than longTermYears
+     * @param longTermAdd added for terms of longTermYears or more
+     * @param longTermYears the first term that counts as long
+     * @param lowDownAdd added when the percent down is under preferredPercentDown
+     * @param preferredPercentDown the percent down that avoids lowDownAdd
+     * @param creditThresholds the lowest score of the bad, fair, good and great credit tiers
+     * @param creditAdds the add-on for the very bad, bad, fair, good and great credit tiers
+     * @param rateTooHigh loans with an APR at or above this are not approved
+     * @param minPercentDown loans with less down than this are not approved
+     * @param dtiTooHigh loans with a debt to income ratio above this are not approved
+     * @pre longTermYears >= 0 AND creditThresholds.length = CREDIT_TIERS - 1 AND [creditThresholds is ascending] AND
+     *      creditAdds.length = CREDIT_TIERS
+     * @post [the tables price loans by the given rules]
+     * @throws IllegalArgumentException if the tier arrays are the wrong size or out of order
+     */
+    public RatePolicy(double baseRate, double shortTermAdd, double longTermAdd, int longTermYears,
+                      double lowDownAdd, double preferredPercentDown, int[] creditThresholds, double[] creditAdds,
+                      double rateTooHigh, double minPercentDown, double dtiTooHigh) {
+        if (creditThresholds.length != AnnuityTable.CREDIT_TIERS - 1 || creditAdds.length != AnnuityTable.CREDIT_TIERS) {
+            throw new IllegalArgumentException("expected " + (AnnuityTable.CREDIT_TIERS - 1) + " credit thresholds and "
+                    + AnnuityTable.CREDIT_TIERS + " credit adds");
+        }
+        for (int i = 1; i < creditThresholds.length; i++) {
+            if (creditThresholds[i] < creditThresholds[i - 1]) {
+                throw new IllegalArgumentException("credit thresholds must be ascending");
+            }
+        }
+        if (longTermYears < 0) {
+            throw new IllegalArgumentException("longTermYears must be at least 0");
+        }
+        this.baseRate = baseRate;
+        this.shortTermAdd = shortTermAdd;
+        this.longTermAdd = longTermAdd;
+        this.longTermYears = longTermYears;
+        this.lowDownAdd = lowDownAdd;
+        this.preferredPercentDown = preferredPercentDown;
+        this.creditThresholds = creditThresholds.clone();
+        this.creditAdds = creditAdds.clone();
+        this.rateTooHigh = rateTooHigh;
+        this.minPercentDown = minPercentDown;
+        this.dtiTooHigh = dtiTooHigh;
+
+        //Credit tier for every possible score
+        creditTiers = new byte[ICustomer.MAX_CREDIT_SCORE + 1];
+        for (int score = 0; score < creditTiers.length; score++) {
+            int tier = 0;
+            while (tier < creditThresholds.length && score >= creditThresholds[tier]) {
+                tier++;
+            }
+            creditTiers[score] = (byte) tier;
+        }
+
+        //Term tier for every year up to the long term; longer terms use the last entry
+        termTiers = new byte[longTermYears + 1];
+        for (int y = 0; y < termTiers.length; y++) {
+            termTiers[y] = (byte) (y < longTermYears ? AnnuityTable.SHORT_TERM : AnnuityTable.LONG_TERM);
+        }
+
+        //APR for every tier combination, added up in the same order the Mortgage constructor always has
+        double[] termAdd = { shortTermAdd, longTermAdd };
+        double[] downAdd = { 0, lowDownAdd };
+        aprs = new double[AnnuityTable.TIERS];
+        rates = new double[AnnuityTable.TIERS];
+        for (int t = 0; t < AnnuityTable.TERM_TIERS; t++) {
+            for (int d = 0; d < AnnuityTable.DOWN_TIERS; d++) {
+                for (int c = 0; c < AnnuityTable.CREDIT_TIERS; c++) {
+                    int tier = AnnuityTable.tier(t, d, c);
+                    double apr = baseRate;
+                    apr += termAdd[t];
+                    apr += downAdd[d];
+                    apr += creditAdds[c];
+                    aprs[tier] = apr;
+                    rates[tier] = apr / IMortgage.MONTHS_IN_YEAR;
+                }
+            }
+        }
+        annuities = new AnnuityTable(rates, Math.max(longTermYears, IMortgage.MAX_YEARS));
+    }
+
+    /**
+     * This method builds the policy described by the constants in IMortgage.
+     * @return the default policy
+     */
+    public static RatePolicy defaults() {
+        return new RatePolicy(IMortgage.BASERATE, IMortgage.GOODRATEADD, IMortgage.NORMALRATEADD, IMortgage.MAX_YEARS,
+                IMortgage.GOODRATEADD, IMortgage.PREFERRED_PERCENT_DOWN,
+                new int[] { IMortgage.BADCREDIT, IMortgage.FAIRCREDIT, IMortgage.GOODCREDIT, IMortgage.GREATCREDIT },
+                new double[] { IMortgage.VERYBADRATEADD, IMortgage.BADRATEADD, IMortgage.NORMALRATEADD, IMortgage.GOODRATEADD, 0 },
+                IMortgage.RATETOOHIGH, IMortgage.MIN_PERCENT_DOWN, IMortgage.DTOITOOHIGH);
+    }
+
+    /**
+     * This method returns the policy new mortgages are priced with.
+     * @return the current policy
+     * @post current != null
+     */
+    public static RatePolicy current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * This method makes a policy the one new mortgages are priced with. Mortgages already being
+     * priced finish with the policy they started with.
+     *
+     * @param policy the policy to use from now on
+     * @return the policy that was replaced
+     * @pre policy != null
+     * @post current = policy
+     */
+    public static RatePolicy install(RatePolicy policy) {
+        return CURRENT.getAndSet(Objects.requireNonNull(policy));
+    }
+
+    /**
+     * This method reads a policy from a properties file. Keys that are missing keep their IMortgage value.
+     *
+     * @param file the properties file
+     * @return the policy described by the file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a value cannot be parsed or the rules are inconsistent
+     */
+    public static RatePolicy load(Path file) throws IOException {
+        Properties p = new Properties();
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            p.load(in);
+        }
+        return fromProperties(p);
+    }
+
+    /**
+     * This method builds a policy from properties. Keys that are missing keep their IMortgage value.
+     *
+     * @param p the properties
+     * @return the policy they describe
+     * @throws IllegalArgumentException if a value cannot be parsed or the rules are inconsistent
+     */
+    public static RatePolicy fromProperties(Properties p) {
+        RatePolicy d = defaults();
+        try {
+            return new RatePolicy(
+                    doubleValue(p, "baseRate", d.baseRate),
+                    doubleValue(p, "shortTermAdd", d.shortTermAdd),
+                    doubleValue(p, "longTermAdd", d.longTermAdd),
+                    (int) doubleValue(p, "longTermYears", d.longTermYears),
+                    doubleValue(p, "lowDownAdd", d.lowDownAdd),
+                    doubleValue(p, "preferredPercentDown", d.preferredPercentDown),
+                    intList(p, "creditThresholds", d.creditThresholds),
+                    doubleList(p, "creditAdds", d.creditAdds),
+                    doubleValue(p, "rateTooHigh", d.rateTooHigh),
+                    doubleValue(p, "minPercentDown", d.minPercentDown),
+                    doubleValue(p, "dtiTooHigh", d.dtiTooHigh));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bad rate policy value: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * This method builds a policy with the same rules but a different base rate.
+     *
+     * @param newBaseRate the APR every loan starts at
+     * @return the new policy
+     * @post [the new policy equals this one except getBaseRate() = newBaseRate]
+     */
+    public RatePolicy withBaseRate(double newBaseRate) {
+        return new RatePolicy(newBaseRate, shortTermAdd, longTermAdd, longTermYears, lowDownAdd, preferredPercentDown,
+                creditThresholds, creditAdds, rateTooHigh, minPercentDown, dtiTooHigh);
+    }
+
+    /**
+     * This method checks whether another policy puts every loan in the same tier combination as this one.
+     *
+     * @param other the other policy
+     * @return true iff both have the same credit thresholds, long term, and preferred percent down
+     */
+    boolean sameTiers(RatePolicy other) {
+        return Arrays.equals(creditTiers, other.creditTiers) && Arrays.equals(termTiers, other.termTiers)
+                && preferredPercentDown == other.preferredPercentDown;
+    }
+
+    /**
+     * This method finds the tier combination for a loan.
+     *
+     * @param numOfYears the term in years
+     * @param percentDown the down payment divided by the house cost
+     * @param creditScore the customer's credit score
+     * @return the tier combination, for apr(), rate() and annuityFactor()
+     * @post 0 <= tier < AnnuityTable.TIERS
+     */
+    public int tier(int numOfYears, double percentDown, int creditScore) {
+        int termTier = termTiers[Math.min(Math.max(numOfYears, 0), termTiers.length - 1)];
+        int downTier = percentDown < preferredPercentDown ? AnnuityTable.LOW_DOWN : AnnuityTable.PREFERRED_DOWN;
+        int creditTier = creditTiers[Math.min(Math.max(creditScore, 0), creditTiers.length - 1)];
+        return AnnuityTable.tier(termTier, downTier, creditTier);
+    }
+
+    /**
+     * This method returns the credit tier of a score.
+     *
+     * @param creditScore the score
+     * @return VERY_BAD_CREDIT through GREAT_CREDIT
+     */
+    public int creditTier(int creditScore) {
+        return creditTiers[Math.min(Math.max(creditScore, 0), creditTiers.length - 1)];
+    }
+
+    /**
+     * This method returns the APR of a tier combination.
+     * @param tier the tier combination
+     * @return the APR
+     * @pre 0 <= tier < AnnuityTable.TIERS
+     */
+    public double apr(int tier) {
+        return aprs[tier];
+    }
+
+    /**
+     * This method returns the monthly rate of a tier combination.
+     * @param tier the tier combination
+     * @return the APR divided by MONTHS_IN_YEAR
+     * @pre 0 <= tier < AnnuityTable.TIERS
+     */
+    public double rate(int tier) {
+        return rates[tier];
+    }
+
+    /**
+     * This method returns the annuity factor 1 - (1 + rate)^-(years * MONTHS_IN_YEAR) for a tier combination.
+     *
+     * @param tier the tier combination the rate came from
+     * @param rate the monthly rate
+     * @param years the term in years
+     * @return the annuity factor
+     */
+    public double annuityFactor(int tier, double rate, int years) {
+        return annuities.factor(tier, rate, years);
+    }
+
+    /**
+     * This method applies the approval rule of Mortgage.loanApproved().
+     *
+     * @param apr the loan's APR
+     * @param percentDown the loan's percent down
+     * @param debtToIncomeRatio the loan's debt to income ratio
+     * @return true iff apr < rateTooHigh AND percentDown >= minPercentDown AND debtToIncomeRatio <= dtiTooHigh
+     */
+    public boolean approved(double apr, double percentDown, double debtToIncomeRatio) {
+        return apr < rateTooHigh && percentDown >= minPercentDown && debtToIncomeRatio <= dtiTooHigh;
+    }
+
+    /**
+     * @return the APR every loan starts at
+     */
+    public double getBaseRate() {
+        return baseRate;
+    }
+
+    /**
+     * @return the first term that counts as long
+     */
+    public int getLongTermYears() {
+        return longTermYears;
+    }
+
+    /**
+     * @return the percent down that avoids the low down payment add-on
+     */
+    public double getPreferredPercentDown() {
+        return preferredPercentDown;
+    }
+
+    /**
+     * @return the APR at or above which loans are not approved
+     */
+    public double getRateTooHigh() {
+        return rateTooHigh;
+    }
+
+    /**
+     * @return the percent down below which loans are not approved
+     */
+    public double getMinPercentDown() {
+        return minPercentDown;
+    }
+
+    /**
+     * @return the debt to income ratio above which loans are not approved
+     */
+    public double getDtiTooHigh() {
+        return dtiTooHigh;
+    }
+
+    private static double doubleValue(Properties p, String key, double fallback) {
+        String v = p.getProperty(key);
+        return v == null ? fallback : Double.parseDouble(v.trim());
+    }
+
+    private static int[] intList(Properties p, String key, int[] fallback) {
+        String v = p.getProperty(key);
+        if (v == null) {
+            return fallback;
+        }
+        String[] parts = v.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+
+    private static double[] doubleList(Properties p, String key, double[] fallback) {
+        String v = p.getProperty(key);
+        if (v == null) {
+            return fallback;
+        }
+        String[] parts = v.split(",");
+        double[] values = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Double.parseDouble(parts[i].trim());
+        }
+        return values;
+    }
+}
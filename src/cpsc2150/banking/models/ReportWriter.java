@@ -0,0 +1,287 @@
+package cpsc2150.banking.models;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * This class renders the customer and mortgage reports straight into a caller supplied Appendable or
+ * ByteBuffer. Money is written with two decimal places and rates as a percent with two decimal places,
+ * one digit at a time, so no intermediate Strings are created.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ */
+public final class ReportWriter {
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L,
+            10000000000L, 100000000000L, 1000000000000L, 10000000000000L, 100000000000000L,
+            1000000000000000L, 10000000000000000L, 100000000000000000L, 1000000000000000000L
+    };
+
+    private ReportWriter() {}
+
+    /**
+     * This method writes the customer report, followed by the loan report if there is a loan.
+     *
+     * @param customer the customer to describe
+     * @param loan the customer's loan, or null if they have not applied
+     * @param out where the report is written
+     * @throws IOException if out throws
+     * @pre customer != null AND out != null
+     * @post [out has the customer report appended]
+     */
+    public static void writeCustomer(ICustomer customer, IMortgage loan, Appendable out) throws IOException {
+        writeCustomer(customer.getName(), customer.getIncome(), customer.getCreditScore(), customer.getMonthlyDebtPayments(), out);
+        if (loan != null) {
+            writeMortgage(loan, out);
+        }
+    }
+
+    /**
+     * This method writes the customer report from its values, up to and including "Mortgage info:".
+     *
+     * @param name the customer's name
+     * @param income the customer's yearly income
+     * @param creditScore the customer's credit score
+     * @param monthlyDebt the customer's monthly debt payments
+     * @param out where the report is written
+     * @throws IOException if out throws
+     * @pre out != null
+     * @post [out has the customer report appended]
+     */
+    public static void writeCustomer(String name, double income, int creditScore, double monthlyDebt, Appendable out) throws IOException {
+        out.append("Name: ").append(name).append('\n');
+        out.append("Income: $");
+        writeMoney(income, out);
+        out.append('\n');
+        out.append("Credit Score: ");
+        writeLong(creditScore, out);
+        out.append('\n');
+        out.append("Monthly Debt: $");
+        writeMoney(monthlyDebt, out);
+        out.append('\n');
+        out.append("Mortgage info:");
+    }
+
+    /**
+     * This method writes the mortgage report.
+     *
+     * @param mortgage the mortgage to describe
+     * @param out where the report is written
+     * @throws IOException if out throws
+     * @pre mortgage != null AND out != null
+     * @post [out has the loan details appended, or "Loan was not approved"]
+     */
+    public static void writeMortgage(IMortgage mortgage, Appendable out) throws IOException {
+        if (mortgage.loanApproved()) {
+            writeMortgage(true, mortgage.getPrincipal(), mortgage.getRate(), mortgage.getYears(), mortgage.getPayment(), out);
+        } else {
+            writeMortgage(false, 0, 0, 0, 0, out);
+        }
+    }
+
+    /**
+     * This method writes the mortgage report from its values.
+     *
+     * @param approved whether the loan was approved; the other values are ignored if not
+     * @param principal the amount of the loan
+     * @param rate the APR
+     * @param years the term of the loan
+     * @param payment the monthly payment
+     * @param out where the report is written
+     * @throws IOException if out throws
+     * @pre out != null
+     * @post [out has the loan details appended, or "Loan was not approved"]
+     */
+    public static void writeMortgage(boolean approved, double principal, double rate, int years, double payment,
+                                     Appendable out) throws IOException {
+        if (approved) {
+            out.append("Principal Amount: $");
+            writeMoney(principal, out);
+            out.append('\n');
+            out.append("Interest Rate: ");
+            writeMoney(rate * 100, out);
+            out.append("%\n");
+            out.append("Term: ");
+            writeLong(years, out);
+            out.append(" years\n");
+            out.append("Monthly Payment: $");
+            writeMoney(payment, out);
+            out.append('\n');
+        } else {
+            out.append("Loan was not approved\n");
+        }
+    }
+
+    /**
+     * This method writes the customer report into a ByteBuffer as UTF-8.
+     *
+     * @param customer the customer to describe
+     * @param loan the customer's loan, or null if they have not applied
+     * @param out where the report is written
+     * @pre customer != null AND out != null
+     * @post [out has the customer report written at its position]
+     * @throws java.nio.BufferOverflowException if the report does not fit
+     */
+    public static void writeCustomer(ICustomer customer, IMortgage loan, ByteBuffer out) {
+        try {
+            writeCustomer(customer, loan, new ByteBufferAppendable(out));
+        } catch (IOException e) {
+            //ByteBufferAppendable never throws IOException
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * This method writes the mortgage report into a ByteBuffer as UTF-8.
+     *
+     * @param mortgage the mortgage to describe
+     * @param out where the report is written
+     * @pre mortgage != null AND out != null
+     * @post [out has the mortgage report written at its position]
+     * @throws java.nio.BufferOverflowException if the report does not fit
+     */
+    public static void writeMortgage(IMortgage mortgage, ByteBuffer out) {
+        try {
+            writeMortgage(mortgage, new ByteBufferAppendable(out));
+        } catch (IOException e) {
+            //ByteBufferAppendable never throws IOException
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * This method writes an amount rounded half up to two decimal places, for example 1234.5 as 1234.50.
+     * NaN, infinite and very large amounts fall back to Double.toString.
+     *
+     * @param amount the amount to write
+     * @param out where the amount is written
+     * @throws IOException if out throws
+     * @post [out has the amount appended with exactly two decimal places]
+     */
+    public static void writeMoney(double amount, Appendable out) throws IOException {
+        if (Double.isNaN(amount) || Math.abs(amount) >= 1e16) {
+            out.append(Double.toString(amount));
+            return;
+        }
+        writeCents(Math.round(amount * 100), out);
+    }
+
+    /**
+     * This method writes an exact amount in cents as dollars, for example 123450 as 1234.50.
+     *
+     * @param cents the amount, in cents
+     * @param out where the amount is written
+     * @throws IOException if out throws
+     * @pre cents > Long.MIN_VALUE
+     * @post [out has the amount appended with exactly two decimal places]
+     */
+    public static void writeCents(long cents, Appendable out) throws IOException {
+        if (cents < 0) {
+            out.append('-');
+            cents = -cents;
+        }
+        writeLong(cents / 100, out);
+        out.append('.');
+        long rem = cents % 100;
+        out.append((char) ('0' + rem / 10));
+        out.append((char) ('0' + rem % 10));
+    }
+
+    /**
+     * This method writes a whole number without creating a String.
+     *
+     * @param value the number to write
+     * @param out where the number is written
+     * @throws IOException if out throws
+     * @post [out has the decimal digits of value appended]
+     */
+    public static void writeLong(long value, Appendable out) throws IOException {
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                out.append(Long.toString(value));
+                return;
+            }
+            out.append('-');
+            value = -value;
+        }
+        int digits = 1;
+        while (digits < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[digits]) {
+            digits++;
+        }
+        for (int i = digits - 1; i >= 0; i--) {
+            long d = value / POWERS_OF_TEN[i];
+            out.append((char) ('0' + d));
+            value -= d * POWERS_OF_TEN[i];
+        }
+    }
+
+    /**
+     * This class lets a ByteBuffer be used as an Appendable by encoding each char as UTF-8.
+     * One instance can be reused for many reports.
+     *
+     * @Defines
+     *      buffer - the buffer being written
+     */
+    public static final class ByteBufferAppendable implements Appendable {
+        private ByteBuffer buffer;
+        private char highSurrogate;
+
+        /**
+         * Constructor that sets the buffer to write into
+         * @param buffer the buffer to write into
+         * @pre buffer != null
+         */
+        public ByteBufferAppendable(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * This method changes the buffer being written, so the same instance can be reused.
+         * @param buffer the buffer to write into
+         * @pre buffer != null
+         */
+        public void setBuffer(ByteBuffer buffer) {
+            this.buffer = buffer;
+            highSurrogate = 0;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) {
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            for (int i = start; i < end; i++) {
+                append(csq.charAt(i));
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c)) {
+                highSurrogate = c;
+            } else if (Character.isLowSurrogate(c) && highSurrogate != 0) {
+                int cp = Character.toCodePoint(highSurrogate, c);
+                highSurrogate = 0;
+                buffer.put((byte) (0xF0 | (cp >> 18)));
+                buffer.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (cp & 0x3F)));
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+            return this;
+        }
+    }
+}
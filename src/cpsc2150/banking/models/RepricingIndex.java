@@ -0,0 +1,329 @@
+package cpsc2150.banking.models;
+
+import java.util.*;
+
+/**
+ * This class keeps a priced MortgageColumns book up to date across rate policy changes without pricing
+ * every loan again. Loans are grouped by the tier combination that gave them their APR, and each group is
+ * kept sorted by debt to income ratio. When a new policy comes in:
+ *
+ *      a group whose APR changed is priced again, and only that group
+ *      a group whose APR crossed the rate limit, or any group that can hold loans near a changed minimum
+ *          percent down, has its approvals checked again without pricing
+ *      when only the debt to income limit changed, only the loans between the old and the new limit are
+ *          checked, found by binary search in each group
+ *
+ * so a small change costs work in proportion to the loans it can affect. A policy that moves the tier
+ * boundaries themselves (credit thresholds, long term, preferred percent down) moves loans between groups,
+ * so the whole book is priced again. Each change answers with the loans whose approval flipped.
+ *
+ * The book's output columns always match pricing every row with the index's policy.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines:
+ *      book - the loans, priced with policy
+ *      policy - the policy the book is priced with
+ */
+public final class RepricingIndex {
+    private final MortgageColumns book;
+    private RatePolicy policy;
+    // Rows of each tier combination, sorted by debt to income ratio
+    private final int[][] groups = new int[AnnuityTable.TIERS][];
+
+    /**
+     * This class holds the loans whose approval flipped in one policy change.
+     *
+     * @Defines:
+     *      approved - the rows that were rejected and are now approved, ascending
+     *      rejected - the rows that were approved and are now rejected, ascending
+     *      repriced - the number of rows priced again
+     *      checked - the number of rows whose approval was checked again without pricing
+     */
+    public static final class Delta {
+        private final int[] approved;
+        private final int[] rejected;
+        private final int repriced;
+        private final int checked;
+
+        Delta(int[] approved, int[] rejected, int repriced, int checked) {
+            this.approved = approved;
+            this.rejected = rejected;
+            this.repriced = repriced;
+            this.checked = checked;
+        }
+
+        /**
+         * @return the rows that flipped to approved, ascending
+         */
+        public int[] getApproved() {
+            return approved.clone();
+        }
+
+        /**
+         * @return the rows that flipped to rejected, ascending
+         */
+        public int[] getRejected() {
+            return rejected.clone();
+        }
+
+        /**
+         * @return the number of rows priced again
+         */
+        public int getRepriced() {
+            return repriced;
+        }
+
+        /**
+         * @return the number of rows checked again without pricing
+         */
+        public int getChecked() {
+            return checked;
+        }
+
+        @Override
+        public String toString() {
+            return "Approved: " + approved.length + ", rejected: " + rejected.length
+                    + ", repriced: " + repriced + ", checked: " + checked;
+        }
+    }
+
+    /**
+     * Constructor that prices a book with the current policy and indexes it.
+     *
+     * @param book the loans
+     * @pre book != null
+     * @post policy = RatePolicy.current() AND [book is priced with policy]
+     */
+    public RepricingIndex(MortgageColumns book) {
+        this.book = book;
+        this.policy = RatePolicy.current();
+        book.evaluate(0, book.size(), policy);
+        group();
+    }
+
+    /**
+     * @return the policy the book is priced with
+     */
+    public RatePolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return the book
+     */
+    public MortgageColumns getBook() {
+        return book;
+    }
+
+    /**
+     * This method brings the book up to date with a new policy.
+     *
+     * @param next the new policy
+     * @return the loans whose approval flipped
+     * @pre next != null
+     * @post policy = next AND [book is priced with next]
+     */
+    public Delta reprice(RatePolicy next) {
+        Flips flips = new Flips();
+        RatePolicy previous = policy;
+        policy = next;
+
+        if (!previous.sameTiers(next)) {
+            for (int i = 0; i < book.size(); i++) {
+                flips.note(i, book.loanApproved(i), book.evaluateRow(i, next));
+            }
+            flips.repriced = book.size();
+            group();
+            return flips.delta();
+        }
+
+        boolean rateLimitChanged = previous.getRateTooHigh() != next.getRateTooHigh();
+        boolean minDownChanged = previous.getMinPercentDown() != next.getMinPercentDown();
+        boolean dtiLimitChanged = previous.getDtiTooHigh() != next.getDtiTooHigh();
+        //Only loans with less down than the higher of the two minimums can change
+        double minDownBound = Math.max(previous.getMinPercentDown(), next.getMinPercentDown());
+
+        for (int tier = 0; tier < AnnuityTable.TIERS; tier++) {
+            int[] rows = groups[tier];
+            if (rows.length == 0) {
+                continue;
+            }
+            boolean downTierAffected = minDownChanged
+                    && (downTier(tier) == AnnuityTable.LOW_DOWN || minDownBound > next.getPreferredPercentDown());
+
+            if (previous.apr(tier) != next.apr(tier) || previous.rate(tier) != next.rate(tier)) {
+                for (int row : rows) {
+                    flips.note(row, book.loanApproved(row), book.evaluateRow(row, next));
+                }
+                flips.repriced += rows.length;
+                sortByDebtToIncome(rows);
+            } else if (downTierAffected
+                    || (rateLimitChanged && previous.approved(previous.apr(tier), 1, 0) != next.approved(next.apr(tier), 1, 0))) {
+                check(rows, 0, rows.length, flips);
+            } else if (dtiLimitChanged) {
+                double low = Math.min(previous.getDtiTooHigh(), next.getDtiTooHigh());
+                double high = Math.max(previous.getDtiTooHigh(), next.getDtiTooHigh());
+                //Only ratios in (low, high] are on different sides of the two limits
+                check(rows, after(rows, low), after(rows, high), flips);
+            }
+        }
+        return flips.delta();
+    }
+
+    /**
+     * This method checks the approval of rows[from..to) again with the current policy.
+     */
+    private void check(int[] rows, int from, int to, Flips flips) {
+        for (int k = from; k < to; k++) {
+            int row = rows[k];
+            double percentDown = book.downPayment[row] / book.houseCost[row];
+            boolean now = policy.approved(book.apr[row], percentDown, book.debtToIncome[row]);
+            flips.note(row, book.loanApproved(row), now);
+            book.setApproved(row, now);
+        }
+        flips.checked += to - from;
+    }
+
+    /**
+     * This method returns the first position in a group whose ratio is above a limit.
+     */
+    private int after(int[] rows, double limit) {
+        int lo = 0;
+        int hi = rows.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (book.debtToIncome[rows[mid]] <= limit) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * This method groups the whole book by tier combination under the policy.
+     */
+    private void group() {
+        int[] counts = new int[AnnuityTable.TIERS];
+        int[] tiers = new int[book.size()];
+        for (int i = 0; i < book.size(); i++) {
+            tiers[i] = policy.tier(book.years[i], book.downPayment[i] / book.houseCost[i], book.creditScore[i]);
+            counts[tiers[i]]++;
+        }
+        for (int tier = 0; tier < AnnuityTable.TIERS; tier++) {
+            groups[tier] = new int[counts[tier]];
+            counts[tier] = 0;
+        }
+        for (int i = 0; i < book.size(); i++) {
+            groups[tiers[i]][counts[tiers[i]]++] = i;
+        }
+        for (int[] rows : groups) {
+            sortByDebtToIncome(rows);
+        }
+    }
+
+    /**
+     * This method sorts a group's rows by ratio, with NaN last, as Double.compare orders them.
+     */
+    private void sortByDebtToIncome(int[] rows) {
+        long[] keys = new long[rows.length];
+        for (int k = 0; k < rows.length; k++) {
+            //Flipping the bits of negative values makes the longs order the same way Double.compare does
+            long bits = Double.doubleToLongBits(book.debtToIncome[rows[k]]);
+            keys[k] = bits ^ ((bits >> 63) & Long.MAX_VALUE);
+        }
+        sort(keys, rows, 0, rows.length - 1);
+    }
+
+    /**
+     * This method sorts keys[lo..hi] and moves rows the same way, with a three way quicksort so groups
+     * with many equal ratios do not go quadratic.
+     */
+    private static void sort(long[] keys, int[] rows, int lo, int hi) {
+        while (hi - lo > 16) {
+            long pivot = median(keys[lo], keys[(lo + hi) >>> 1], keys[hi]);
+            int lt = lo;
+            int gt = hi;
+            int k = lo;
+            while (k <= gt) {
+                if (keys[k] < pivot) {
+                    swap(keys, rows, lt++, k++);
+                } else if (keys[k] > pivot) {
+                    swap(keys, rows, k, gt--);
+                } else {
+                    k++;
+                }
+            }
+            //Recurse into the smaller side so the stack stays shallow
+            if (lt - lo < hi - gt) {
+                sort(keys, rows, lo, lt - 1);
+                lo = gt + 1;
+            } else {
+                sort(keys, rows, gt + 1, hi);
+                hi = lt - 1;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            for (int j = i; j > lo && keys[j - 1] > keys[j]; j--) {
+                swap(keys, rows, j - 1, j);
+            }
+        }
+    }
+
+    private static long median(long a, long b, long c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    private static void swap(long[] keys, int[] rows, int i, int j) {
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        int row = rows[i];
+        rows[i] = rows[j];
+        rows[j] = row;
+    }
+
+    private static int downTier(int tier) {
+        return (tier / AnnuityTable.CREDIT_TIERS) % AnnuityTable.DOWN_TIERS;
+    }
+
+    /**
+     * This class collects the rows that flipped.
+     */
+    private static final class Flips {
+        int[] approved = new int[16];
+        int approvedCount;
+        int[] rejected = new int[16];
+        int rejectedCount;
+        int repriced;
+        int checked;
+
+        void note(int row, boolean before, boolean after) {
+            if (before == after) {
+                return;
+            }
+            if (after) {
+                if (approvedCount == approved.length) {
+                    approved = Arrays.copyOf(approved, approvedCount * 2);
+                }
+                approved[approvedCount++] = row;
+            } else {
+                if (rejectedCount == rejected.length) {
+                    rejected = Arrays.copyOf(rejected, rejectedCount * 2);
+                }
+                rejected[rejectedCount++] = row;
+            }
+        }
+
+        Delta delta() {
+            int[] a = Arrays.copyOf(approved, approvedCount);
+            int[] r = Arrays.copyOf(rejected, rejectedCount);
+            Arrays.sort(a);
+            Arrays.sort(r);
+            return new Delta(a, r, repriced, checked);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package cpsc2150.banking.models;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.*;
+
+/**
+ * This class splits a portfolio of loans into amortization schedules for a stream. Each element is the
+ * lazy AmortizationSchedule of one approved loan, and splitting hands half of the remaining loans to
+ * another thread, so a parallel stream spreads the work across loans without materializing any rows.
+ * Loans that were not approved are skipped.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines:
+ *      loans - the portfolio
+ *      index - the next loan to visit
+ *      end - one past the last loan this spliterator covers
+ */
+public class ScheduleSpliterator implements Spliterator<AmortizationSchedule> {
+    private final List<? extends IMortgage> loans;
+    private int index;
+    private final int end;
+
+    /**
+     * Constructor that covers a whole portfolio
+     * @param loans the portfolio, which should support fast random access
+     * @pre loans != null
+     */
+    public ScheduleSpliterator(List<? extends IMortgage> loans) {
+        this(loans, 0, loans.size());
+    }
+
+    private ScheduleSpliterator(List<? extends IMortgage> loans, int index, int end) {
+        this.loans = loans;
+        this.index = index;
+        this.end = end;
+    }
+
+    /**
+     * This method streams the schedules of every approved loan in a portfolio.
+     *
+     * @param loans the portfolio
+     * @param parallel whether the stream should be parallel
+     * @return a stream with one schedule per approved loan
+     * @pre loans != null
+     */
+    public static Stream<AmortizationSchedule> schedules(List<? extends IMortgage> loans, boolean parallel) {
+        return StreamSupport.stream(new ScheduleSpliterator(loans), parallel);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super AmortizationSchedule> action) {
+        while (index < end) {
+            IMortgage loan = loans.get(index++);
+            if (loan.loanApproved()) {
+                action.accept(loan.getSchedule());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Spliterator<AmortizationSchedule> trySplit() {
+        int mid = (index + end) >>> 1;
+        if (mid <= index) {
+            return null;
+        }
+        ScheduleSpliterator prefix = new ScheduleSpliterator(loans, index, mid);
+        index = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return end - index;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+}
@@ -0,0 +1,119 @@
+package cpsc2150.banking.models;
+
+/**
+ * This class is an ICustomer whose fields live in a CustomerStore instead of on the heap. Every get method
+ * reads the mapped record, so one StoredCustomer can be moved across the whole book with moveTo() and
+ * passed to Mortgage at each stop, for example:
+ *
+ *      StoredCustomer customer = store.get(0);
+ *      for (int i = 0; i < store.size(); i++) {
+ *          customer.moveTo(i);
+ *          new Mortgage(houseCost, downPayment, years, customer);
+ *      }
+ *
+ * The loan is not stored in the book; it belongs to this object and is forgotten on moveTo().
+ *
+ * A Mortgage keeps the customer it was given, so a Mortgage built on the flyweight reads whatever record
+ * the flyweight points at now, not the one it was priced for. Such a Mortgage must not be kept past the
+ * next moveTo(); a loan that is kept, for example added to PortfolioStats or a DecisionIndex after the
+ * loop moves on, should be built on snapshot() instead:
+ *
+ *      loans.add(new Mortgage(houseCost, downPayment, years, customer.snapshot()));
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ * @invariant 0 <= index < store.size()
+ * @correspondence self.CreditScore = [credit score of record index] AND self.MonthlyDebt = [monthly debt of record index]
+ *                 AND self.Loan = loan AND self.Income = [income of record index] AND self.Name = [name of record index]
+ */
+public class StoredCustomer extends AbsCustomer implements ICustomer {
+
+    private final CustomerStore store;
+    private int index;
+
+    /**
+     * Constructor for a flyweight on one record.
+     *
+     * @param store the book
+     * @param index the customer's index
+     * @pre store != null AND 0 <= index < store.size()
+     * @post this.index = index AND loan = null
+     */
+    StoredCustomer(CustomerStore store, int index) {
+        this.store = store;
+        this.index = index;
+    }
+
+    /**
+     * This method points the flyweight at another customer.
+     *
+     * @param index the customer's index
+     * @return this
+     * @pre 0 <= index < store.size()
+     * @post this.index = index AND loan = null
+     */
+    public StoredCustomer moveTo(int index) {
+        this.index = index;
+        loan = null;
+        return this;
+    }
+
+    /**
+     * This method copies the current record onto the heap, for a Mortgage that outlives the next moveTo().
+     *
+     * @return a new Customer with this customer's debt, income, credit score and name, and no loan
+     * @post [snapshot reads the same values as this, and keeps them after moveTo()]
+     */
+    public Customer snapshot() {
+        return new Customer(getMonthlyDebtPayments(), getIncome(), getCreditScore(), getName());
+    }
+
+    /**
+     * @return the index of the customer this flyweight reads
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public boolean applyForLoan(double downPayment, double houseCost, int years) {
+        loan = new Mortgage(houseCost, downPayment, years, this);
+
+        return loan.loanApproved();
+    }
+
+    @Override
+    public double getRate() {
+        return loan.getRate();
+    }
+
+    @Override
+    public double getMonthlyPay() {
+        return loan.getPayment();
+    }
+
+    @Override
+    public double getMonthlyDebtPayments() {
+        return store.monthlyDebt(index);
+    }
+
+    @Override
+    public double getIncome() {
+        return store.income(index);
+    }
+
+    @Override
+    public int getCreditScore() {
+        return store.creditScore(index);
+    }
+
+    @Override
+    public String getName() {
+        return store.name(index);
+    }
+
+    @Override
+    public boolean appliedForLoan() {
+        return loan != null;
+    }
+}
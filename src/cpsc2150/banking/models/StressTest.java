@@ -0,0 +1,379 @@
+package cpsc2150.banking.models;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This class stress tests a portfolio with random scenarios. Each scenario
+ *
+ *      moves the base rate by a normally distributed shock, the same for every loan
+ *      drops some customers' incomes by a fixed fraction
+ *      moves some customers one credit tier down, and some one tier up
+ *
+ * and then prices and approves every loan again with the Mortgage rules under the shocked RatePolicy.
+ * For each scenario it keeps the approval rate and the payment burden, the total monthly payment of the
+ * approved loans, so the spread of outcomes across scenarios can be read off as percentiles.
+ *
+ * Scenarios are split across the common fork-join pool. Each scenario has its own SplittableRandom,
+ * split from one seeded root in scenario order, and walks the loans in order, so a seed gives the same
+ * results on any number of threads.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines:
+ *      policy - the unshocked RatePolicy, the one in effect when the test was built
+ *      Size: Z - the number of loans in the portfolio
+ */
+public final class StressTest {
+    // A task prices at least this many loans before it stops splitting
+    private static final int LEAF_LOANS = 1 << 16;
+
+    private final RatePolicy policy;
+    private final int size;
+    // Each loan's tier combination without its credit tier, and its credit tier
+    private final int[] termAndDownTier;
+    private final byte[] creditTier;
+    private final double[] principal;
+    private final double[] percentDown;
+    private final double[] income;
+    private final double[] monthlyDebt;
+    private final int[] years;
+
+    /**
+     * This class describes the random shocks a scenario draws from.
+     *
+     * @Defines:
+     *      rateShockMean, rateShockStdDev - the normal distribution the base rate shock is drawn from
+     *      incomeDropProbability - the chance each customer's income drops
+     *      incomeDropFraction - how much of their income a customer loses when it drops
+     *      downgradeProbability - the chance each customer moves one credit tier down
+     *      upgradeProbability - the chance each customer moves one credit tier up
+     */
+    public static final class Shocks {
+        public final double rateShockMean;
+        public final double rateShockStdDev;
+        public final double incomeDropProbability;
+        public final double incomeDropFraction;
+        public final double downgradeProbability;
+        public final double upgradeProbability;
+
+        /**
+         * Constructor that sets every shock.
+         * @pre rateShockStdDev >= 0 AND 0 <= incomeDropProbability <= 1 AND 0 <= incomeDropFraction < 1 AND
+         *      0 <= downgradeProbability AND 0 <= upgradeProbability AND downgradeProbability + upgradeProbability <= 1
+         * @post [every field equals the matching parameter]
+         */
+        public Shocks(double rateShockMean, double rateShockStdDev, double incomeDropProbability, double incomeDropFraction,
+                      double downgradeProbability, double upgradeProbability) {
+            if (rateShockStdDev < 0 || !(incomeDropProbability >= 0 && incomeDropProbability <= 1)
+                    || !(incomeDropFraction >= 0 && incomeDropFraction < 1) || !(downgradeProbability >= 0)
+                    || !(upgradeProbability >= 0) || downgradeProbability + upgradeProbability > 1) {
+                throw new IllegalArgumentException("shock probabilities and fractions must be between 0 and 1");
+            }
+            this.rateShockMean = rateShockMean;
+            this.rateShockStdDev = rateShockStdDev;
+            this.incomeDropProbability = incomeDropProbability;
+            this.incomeDropFraction = incomeDropFraction;
+            this.downgradeProbability = downgradeProbability;
+            this.upgradeProbability = upgradeProbability;
+        }
+    }
+
+    /**
+     * This class holds the outcome of every scenario of a run, and the outcome with no shocks at all.
+     *
+     * @Defines:
+     *      scenarios - the number of scenarios run
+     *      baselineApprovalRate, baselinePaymentBurden - the outcome under the unshocked policy
+     */
+    public static final class Result {
+        private final double[] rateShock;
+        private final double[] approvalRate;
+        private final double[] paymentBurden;
+        private final double baselineApprovalRate;
+        private final double baselinePaymentBurden;
+        private double[] sortedApprovalRate;
+        private double[] sortedPaymentBurden;
+
+        Result(int scenarios, double baselineApprovalRate, double baselinePaymentBurden) {
+            rateShock = new double[scenarios];
+            approvalRate = new double[scenarios];
+            paymentBurden = new double[scenarios];
+            this.baselineApprovalRate = baselineApprovalRate;
+            this.baselinePaymentBurden = baselinePaymentBurden;
+        }
+
+        /**
+         * @return the number of scenarios run
+         */
+        public int getScenarios() {
+            return rateShock.length;
+        }
+
+        /**
+         * @param scenario the scenario, from 0
+         * @return how far that scenario moved the base rate
+         */
+        public double getRateShock(int scenario) {
+            return rateShock[scenario];
+        }
+
+        /**
+         * @param scenario the scenario, from 0
+         * @return the fraction of loans approved in that scenario
+         */
+        public double getApprovalRate(int scenario) {
+            return approvalRate[scenario];
+        }
+
+        /**
+         * @param scenario the scenario, from 0
+         * @return the total monthly payment of the loans approved in that scenario
+         */
+        public double getPaymentBurden(int scenario) {
+            return paymentBurden[scenario];
+        }
+
+        /**
+         * @return the fraction of loans approved with no shocks
+         */
+        public double getBaselineApprovalRate() {
+            return baselineApprovalRate;
+        }
+
+        /**
+         * @return the total monthly payment of the loans approved with no shocks
+         */
+        public double getBaselinePaymentBurden() {
+            return baselinePaymentBurden;
+        }
+
+        /**
+         * @return the mean approval rate across scenarios
+         */
+        public double getMeanApprovalRate() {
+            return mean(approvalRate);
+        }
+
+        /**
+         * @return the mean payment burden across scenarios
+         */
+        public double getMeanPaymentBurden() {
+            return mean(paymentBurden);
+        }
+
+        /**
+         * @param percentile from 0 to 100
+         * @return the approval rate that percentile of scenarios are at or below
+         */
+        public synchronized double getApprovalRatePercentile(double percentile) {
+            if (sortedApprovalRate == null) {
+                sortedApprovalRate = sorted(approvalRate);
+            }
+            return percentile(sortedApprovalRate, percentile);
+        }
+
+        /**
+         * @param percentile from 0 to 100
+         * @return the payment burden that percentile of scenarios are at or below
+         */
+        public synchronized double getPaymentBurdenPercentile(double percentile) {
+            if (sortedPaymentBurden == null) {
+                sortedPaymentBurden = sorted(paymentBurden);
+            }
+            return percentile(sortedPaymentBurden, percentile);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(256);
+            sb.append("Scenarios: ").append(getScenarios()).append('\n');
+            sb.append("Baseline approval rate: ").append(baselineApprovalRate).append('\n');
+            sb.append("Approval rate p1/p50/p99: ").append(getApprovalRatePercentile(1)).append(" / ")
+                    .append(getApprovalRatePercentile(50)).append(" / ").append(getApprovalRatePercentile(99)).append('\n');
+            sb.append("Baseline payment burden: ").append(baselinePaymentBurden).append('\n');
+            sb.append("Payment burden p1/p50/p99: ").append(getPaymentBurdenPercentile(1)).append(" / ")
+                    .append(getPaymentBurdenPercentile(50)).append(" / ").append(getPaymentBurdenPercentile(99)).append('\n');
+            return sb.toString();
+        }
+
+        private static double mean(double[] values) {
+            double sum = 0;
+            for (double v : values) {
+                sum += v;
+            }
+            return values.length == 0 ? 0 : sum / values.length;
+        }
+
+        private static double[] sorted(double[] values) {
+            double[] copy = values.clone();
+            Arrays.sort(copy);
+            return copy;
+        }
+
+        private static double percentile(double[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            return sorted[Math.min(Math.max(rank, 0), sorted.length - 1)];
+        }
+    }
+
+    /**
+     * Constructor that takes the loans of a portfolio, to be stressed against the current rate policy.
+     *
+     * @param portfolio the customers and loan requests; only the inputs are read, not the evaluated columns
+     * @pre portfolio != null
+     * @post policy = RatePolicy.current() AND Size = portfolio.size()
+     */
+    public StressTest(MortgageColumns portfolio) {
+        policy = RatePolicy.current();
+        size = portfolio.size();
+        termAndDownTier = new int[size];
+        creditTier = new byte[size];
+        principal = new double[size];
+        percentDown = new double[size];
+        income = new double[size];
+        monthlyDebt = new double[size];
+        years = new int[size];
+        for (int i = 0; i < size; i++) {
+            //Principal and percent down are worked out the same way the Mortgage constructor does
+            principal[i] = portfolio.houseCost[i] - portfolio.downPayment[i];
+            percentDown[i] = portfolio.downPayment[i] / portfolio.houseCost[i];
+            int tier = policy.tier(portfolio.years[i], percentDown[i], portfolio.creditScore[i]);
+            creditTier[i] = (byte) (tier % AnnuityTable.CREDIT_TIERS);
+            termAndDownTier[i] = tier - creditTier[i];
+            income[i] = portfolio.income[i];
+            monthlyDebt[i] = portfolio.monthlyDebt[i];
+            years[i] = portfolio.years[i];
+        }
+    }
+
+    /**
+     * @return Size, the number of loans in the portfolio
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * This method runs a stress test.
+     *
+     * @param shocks the shocks each scenario draws from
+     * @param scenarios the number of scenarios
+     * @param seed the seed; the same seed gives the same result
+     * @return the outcome of every scenario
+     * @pre shocks != null AND scenarios >= 0
+     */
+    public Result run(Shocks shocks, int scenarios, long seed) {
+        double[] baseline = new double[2];
+        price(policy, null, null, baseline);
+        Result result = new Result(scenarios, size == 0 ? 0 : baseline[0] / size, baseline[1]);
+
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[scenarios];
+        for (int s = 0; s < scenarios; s++) {
+            streams[s] = root.split();
+        }
+        ForkJoinPool.commonPool().invoke(new Scenarios(shocks, streams, result, 0, scenarios));
+        return result;
+    }
+
+    /**
+     * This class runs a range of scenarios, splitting it in half until a half is a leaf's worth of loans.
+     */
+    private final class Scenarios extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Shocks shocks;
+        private final SplittableRandom[] streams;
+        private final Result result;
+        private final int from;
+        private final int to;
+
+        Scenarios(Shocks shocks, SplittableRandom[] streams, Result result, int from, int to) {
+            this.shocks = shocks;
+            this.streams = streams;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1 && (long) (to - from) * size > LEAF_LOANS) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Scenarios(shocks, streams, result, from, mid),
+                        new Scenarios(shocks, streams, result, mid, to));
+                return;
+            }
+            double[] outcome = new double[2];
+            for (int s = from; s < to; s++) {
+                runScenario(shocks, streams[s], s, result, outcome);
+            }
+        }
+    }
+
+    /**
+     * This method runs one scenario and stores its outcome.
+     */
+    private void runScenario(Shocks shocks, SplittableRandom random, int scenario, Result result, double[] outcome) {
+        double rateShock = shocks.rateShockMean + shocks.rateShockStdDev * gaussian(random);
+        //The base rate cannot go below zero
+        rateShock = Math.max(rateShock, -policy.getBaseRate());
+        RatePolicy shocked = policy.withBaseRate(policy.getBaseRate() + rateShock);
+        price(shocked, shocks, random, outcome);
+        result.rateShock[scenario] = rateShock;
+        result.approvalRate[scenario] = size == 0 ? 0 : outcome[0] / size;
+        result.paymentBurden[scenario] = outcome[1];
+    }
+
+    /**
+     * This method prices every loan under a policy with the Mortgage rules, after shocking its income and
+     * credit tier if shocks is not null.
+     *
+     * @param outcome set to the number approved and their total monthly payment
+     */
+    private void price(RatePolicy p, Shocks shocks, SplittableRandom random, double[] outcome) {
+        long approved = 0;
+        double burden = 0;
+        for (int i = 0; i < size; i++) {
+            double inc = income[i];
+            int credit = creditTier[i];
+            if (shocks != null) {
+                if (random.nextDouble() < shocks.incomeDropProbability) {
+                    inc *= 1 - shocks.incomeDropFraction;
+                }
+                double migrate = random.nextDouble();
+                if (migrate < shocks.downgradeProbability) {
+                    credit = Math.max(credit - 1, AnnuityTable.VERY_BAD_CREDIT);
+                } else if (migrate < shocks.downgradeProbability + shocks.upgradeProbability) {
+                    credit = Math.min(credit + 1, AnnuityTable.GREAT_CREDIT);
+                }
+            }
+
+            int tier = termAndDownTier[i] + credit;
+            double apr = p.apr(tier);
+            double rate = p.rate(tier);
+            double payment = (rate * principal[i]) / p.annuityFactor(tier, rate, years[i]);
+            double dti = ((payment + monthlyDebt[i]) / (inc / IMortgage.MONTHS_IN_YEAR));
+            if (p.approved(apr, percentDown[i], dti)) {
+                approved++;
+                burden += payment;
+            }
+        }
+        outcome[0] = approved;
+        outcome[1] = burden;
+    }
+
+    /**
+     * This method draws a standard normal value with the Box-Muller transform.
+     */
+    private static double gaussian(SplittableRandom random) {
+        double u = 1 - random.nextDouble();
+        double v = random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * v);
+    }
+}
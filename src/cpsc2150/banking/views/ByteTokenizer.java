@@ -0,0 +1,262 @@
+package cpsc2150.banking.views;
+
+import java.io.*;
+import java.util.NoSuchElementException;
+
+/**
+ * This class reads whitespace separated tokens and whole lines straight from the bytes of an input stream,
+ * through one large buffer that is refilled in place. Whole numbers and plain decimals are parsed from the
+ * bytes without creating a String; anything else (exponents, very long numbers) falls back to the JDK parsers.
+ * Input is assumed to be ASCII or UTF-8.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ *
+ * @Defines
+ *      buffer - the bytes read but not yet consumed, from pos to limit
+ */
+public class ByteTokenizer implements Closeable {
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    // Mantissas up to 2^53 are exact in a double, so dividing by an exact power of ten rounds correctly
+    private static final long MAX_EXACT = 1L << 53;
+
+    private final InputStream in;
+    private final byte[] buffer;
+    private int pos;
+    private int limit;
+    private byte[] token = new byte[64];
+    private int tokenLength;
+
+    /**
+     * Constructor that reads from a stream through a buffer of the given size.
+     *
+     * @param in the stream to read
+     * @param bufferSize the number of bytes to read at a time
+     * @pre in != null AND bufferSize > 0
+     */
+    public ByteTokenizer(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Constructor that reads from a stream through a 64KB buffer.
+     * @param in the stream to read
+     * @pre in != null
+     */
+    public ByteTokenizer(InputStream in) {
+        this(in, 1 << 16);
+    }
+
+    /**
+     * This method checks whether there is another token.
+     *
+     * @return true if anything other than whitespace is left
+     * @throws UncheckedIOException if reading fails
+     */
+    public boolean hasNext() {
+        return skipWhitespace();
+    }
+
+    /**
+     * This method reads the next token as a whole number.
+     *
+     * @return the number
+     * @throws NoSuchElementException if the input has ended
+     * @throws NumberFormatException if the token is not a whole number
+     */
+    public int nextInt() {
+        readToken();
+        int i = 0;
+        boolean negative = false;
+        if (token[0] == '-' || token[0] == '+') {
+            negative = token[0] == '-';
+            i = 1;
+        }
+        if (i == tokenLength || tokenLength - i > 9) {
+            return Integer.parseInt(tokenString());
+        }
+        int value = 0;
+        for (; i < tokenLength; i++) {
+            int d = token[i] - '0';
+            if (d < 0 || d > 9) {
+                throw new NumberFormatException("For input string: \"" + tokenString() + "\"");
+            }
+            value = value * 10 + d;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * This method reads the next token as a floating-point number.
+     *
+     * @return the number
+     * @throws NoSuchElementException if the input has ended
+     * @throws NumberFormatException if the token is not a number
+     */
+    public double nextDouble() {
+        readToken();
+        int i = 0;
+        boolean negative = false;
+        if (token[0] == '-' || token[0] == '+') {
+            negative = token[0] == '-';
+            i = 1;
+        }
+        long mantissa = 0;
+        int decimals = 0;
+        boolean seenPoint = false;
+        boolean seenDigit = false;
+        for (; i < tokenLength; i++) {
+            byte b = token[i];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                seenDigit = true;
+                if (seenPoint) {
+                    decimals++;
+                }
+                if (mantissa >= MAX_EXACT) {
+                    return Double.parseDouble(tokenString());
+                }
+            } else if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                //Exponents, NaN, Infinity and malformed input are left to the JDK
+                return Double.parseDouble(tokenString());
+            }
+        }
+        if (!seenDigit || decimals >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(tokenString());
+        }
+        double value = mantissa / POWERS_OF_TEN[decimals];
+        return negative ? -value : value;
+    }
+
+    /**
+     * This method reads the next token and returns its first character.
+     *
+     * @return the first character of the next token
+     * @throws NoSuchElementException if the input has ended
+     */
+    public char nextChar() {
+        readToken();
+        //A multi-byte UTF-8 character is decoded, so its first byte is never mistaken for a letter
+        return token[0] >= 0 ? (char) token[0] : tokenString().charAt(0);
+    }
+
+    /**
+     * This method skips blank lines and the rest of the current line if it is blank, then reads one line.
+     *
+     * @return the next non-blank line, without its line ending, with surrounding whitespace removed
+     * @throws NoSuchElementException if the input has ended
+     */
+    public String nextLine() {
+        if (!skipWhitespace()) {
+            throw new NoSuchElementException();
+        }
+        tokenLength = 0;
+        while (true) {
+            if (pos == limit && !fill()) {
+                break;
+            }
+            byte b = buffer[pos];
+            if (b == '\n') {
+                pos++;
+                break;
+            }
+            append(b);
+            pos++;
+        }
+        //Drops trailing whitespace, including a '\r' from Windows line endings
+        while (tokenLength > 0 && isWhitespace(token[tokenLength - 1])) {
+            tokenLength--;
+        }
+        return tokenString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * This method copies the next token into the token buffer.
+     */
+    private void readToken() {
+        if (!skipWhitespace()) {
+            throw new NoSuchElementException();
+        }
+        tokenLength = 0;
+        while (true) {
+            if (pos == limit && !fill()) {
+                return;
+            }
+            byte b = buffer[pos];
+            if (isWhitespace(b)) {
+                return;
+            }
+            append(b);
+            pos++;
+        }
+    }
+
+    /**
+     * This method moves past whitespace.
+     * @return true if a non-whitespace byte is next, false at the end of the input
+     */
+    private boolean skipWhitespace() {
+        while (true) {
+            if (pos == limit && !fill()) {
+                return false;
+            }
+            if (!isWhitespace(buffer[pos])) {
+                return true;
+            }
+            pos++;
+        }
+    }
+
+    /**
+     * This method checks for a space or control byte. Bytes are signed, so the bytes of a non-ASCII UTF-8
+     * character are negative and are compared unsigned, as the letters they are part of.
+     */
+    private static boolean isWhitespace(byte b) {
+        return (b & 0xFF) <= ' ';
+    }
+
+    private void append(byte b) {
+        if (tokenLength == token.length) {
+            byte[] bigger = new byte[token.length * 2];
+            System.arraycopy(token, 0, bigger, 0, tokenLength);
+            token = bigger;
+        }
+        token[tokenLength++] = b;
+    }
+
+    private String tokenString() {
+        return new String(token, 0, tokenLength, java.nio.charset.StandardCharsets.UTF_8);
+    }
+
+    /**
+     * This method refills the buffer from the stream.
+     * @return false at the end of the stream
+     */
+    private boolean fill() {
+        try {
+            int n = in.read(buffer, 0, buffer.length);
+            while (n == 0) {
+                n = in.read(buffer, 0, buffer.length);
+            }
+            if (n < 0) {
+                return false;
+            }
+            pos = 0;
+            limit = n;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,3 +1,4 @@
+package cpsc2150.banking.views;
 import cpsc2150.banking.controllers.*;
 
 /**
@@ -0,0 +1,145 @@
+package cpsc2150.banking.views;
+import cpsc2150.banking.controllers.*;
+
+import java.io.*;
+
+/**
+ * This class is an IMortgageView for piped or recorded sessions. Every answer is read through one
+ * ByteTokenizer over the input, so nothing is lost between prompts the way it is when a new Scanner is
+ * made for each question, and output goes through one buffered stream.
+ *
+ * The input is the same answers a user would type: the name on its own line, then income, monthly debt,
+ * credit score, house cost, down payment, and years, then Y/N for another mortgage and, after N,
+ * Y/N for another customer. Answers may be separated by any whitespace except the name, which is a line.
+ * When the input ends, both Y/N questions are answered N.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ * @Defines
+ *      IMortgageController controller - The controller object being used
+ */
+public class StreamMortgageView implements IMortgageView {
+    private final ByteTokenizer in;
+    private final PrintStream out;
+    IMortgageController controller;
+
+    /**
+     * Constructor that reads answers from in and writes prompts and results to out.
+     *
+     * @param in the session to replay
+     * @param out where output is written; it is flushed when the session ends
+     * @pre in != null AND out != null
+     */
+    public StreamMortgageView(InputStream in, PrintStream out) {
+        this.in = new ByteTokenizer(in);
+        this.out = out;
+    }
+
+    /**
+     * This method sets the controller for the mortgage view
+     * @param c the Controller object to set
+     * @post the controller is now set
+     */
+    @Override
+    public void setController(IMortgageController c) {
+        controller = c;
+    }
+
+    @Override
+    public double getHouseCost() {
+        return in.nextDouble();
+    }
+
+    @Override
+    public double getDownPayment() {
+        return in.nextDouble();
+    }
+
+    @Override
+    public int getYears() {
+        return in.nextInt();
+    }
+
+    @Override
+    public double getMonthlyDebt() {
+        return in.nextDouble();
+    }
+
+    @Override
+    public double getYearlyIncome() {
+        return in.nextDouble();
+    }
+
+    @Override
+    public int getCreditScore() {
+        return in.nextInt();
+    }
+
+    @Override
+    public String getName() {
+        return in.nextLine();
+    }
+
+    @Override
+    public void printToUser(String s) {
+        out.println(s);
+    }
+
+    @Override
+    public void displayPayment(double p) {
+        out.println("Monthly Payment: " + p);
+    }
+
+    @Override
+    public void displayRate(double r) {
+        out.println("Interest Rate: " + r);
+    }
+
+    @Override
+    public void displayApproved(boolean a) {
+        out.println("Approved: " + a);
+    }
+
+    /**
+     * This method reads whether the customer wants another mortgage.
+     * @return true if the answer was Y or y, false for N, n, or the end of the input
+     */
+    @Override
+    public boolean getAnotherMortgage() {
+        out.println("Would you like to apply for another mortgage? Y/N");
+        return yesOrNo("Would you like to apply for another mortgage? Y/N");
+    }
+
+    /**
+     * This method reads whether there is another customer. The output is flushed when the answer is no,
+     * since the session ends right after.
+     * @return true if the answer was Y or y, false for N, n, or the end of the input
+     */
+    @Override
+    public boolean getAnotherCustomer() {
+        out.println("Would you like to consider another customer? Y/N");
+        boolean another = yesOrNo("Would you like to consider another customer? Y/N");
+        if (!another) {
+            out.flush();
+        }
+        return another;
+    }
+
+    /**
+     * This method reads answers until one is Y or N, the same way MortgageView re-prompts.
+     */
+    private boolean yesOrNo(String prompt) {
+        while (in.hasNext()) {
+            char uI = in.nextChar();
+            if (uI == 'Y' || uI == 'y') {
+                return true;
+            }
+            if (uI == 'N' || uI == 'n') {
+                return false;
+            }
+            out.println("Invalid Input: please enter Y/N");
+            out.println(prompt);
+        }
+        return false;
+    }
+}
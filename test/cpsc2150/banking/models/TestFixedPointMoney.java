@@ -0,0 +1,89 @@
+package cpsc2150.banking.models;
+
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * This class tests FixedPointMoney and FixedPointSchedule: that the fast payment rounds the same as the
+ * exact one, and that a schedule pays off exactly the principal and ends at 0.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ */
+public class TestFixedPointMoney {
+
+    @Test
+    public void testDivideHalfEven() {
+        assertEquals(2, FixedPointMoney.divideHalfEven(5, 2));
+        assertEquals(4, FixedPointMoney.divideHalfEven(7, 2));
+        assertEquals(-2, FixedPointMoney.divideHalfEven(-5, 2));
+        assertEquals(3, FixedPointMoney.divideHalfEven(10, 3));
+        assertEquals(4, FixedPointMoney.divideHalfEven(11, 3));
+    }
+
+    @Test
+    public void testPaymentMatchesExact() {
+        SplittableRandom random = new SplittableRandom(0);
+        for (int i = 0; i < 2000; i++) {
+            long principal = 1 + random.nextLong(10000000000L);
+            long apr = 1 + random.nextInt(250000);
+            int months = 1 + random.nextInt(480);
+            assertEquals(FixedPointMoney.exactPayment(principal, apr, months),
+                    FixedPointMoney.payment(principal, apr, months));
+        }
+    }
+
+    @Test
+    public void testPaymentNearHalfCent() {
+        SplittableRandom random = new SplittableRandom(2);
+        for (int i = 0; i < 2000; i++) {
+            long apr = 1 + random.nextInt(250000);
+            int months = 1 + random.nextInt(480);
+            //The principal whose payment is closest to some whole number of cents and a half
+            double rate = apr / (double) FixedPointMoney.MONTHLY_DIVISOR;
+            double perCent = rate / -Math.expm1(-months * Math.log1p(rate));
+            long principal = Math.max(1, Math.round((random.nextInt(500000) + 0.5) / perCent));
+            assertEquals(FixedPointMoney.exactPayment(principal, apr, months),
+                    FixedPointMoney.payment(principal, apr, months));
+        }
+    }
+
+    @Test
+    public void testPaymentKnownValue() {
+        //$240,000.00 at 4.5% over 30 years is $1216.04 a month
+        assertEquals(121604, FixedPointMoney.payment(24000000, 45000, 360));
+        assertEquals(100, FixedPointMoney.payment(36000, 0, 360));
+    }
+
+    @Test
+    public void testScheduleEndsAtZero() {
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < 2000; i++) {
+            long principal = 100000 + random.nextLong(100000000L);
+            long apr = 1 + random.nextInt(200000);
+            long payment = FixedPointMoney.payment(principal, apr, 360);
+            FixedPointSchedule s = new FixedPointSchedule(principal, apr, payment, 360);
+            long paid = 0;
+            while (s.next()) {
+                assertEquals(s.getPaymentCents(), s.getInterestCents() + s.getPrincipalPaidCents());
+                paid += s.getPrincipalPaidCents();
+            }
+            assertEquals(principal, paid);
+            assertEquals(0, s.getBalanceCents());
+        }
+    }
+
+    @Test
+    public void testFixedPointMortgage() {
+        ICustomer c = new Customer(500, 120000, 720, "Fixed Test");
+        Mortgage m = new Mortgage(300000.10, 60000, 30, c, MoneyArithmetic.FIXED_POINT);
+        assertEquals(24000010, m.getPrincipalCents());
+        assertEquals(FixedPointMoney.payment(24000010, FixedPointMoney.toRateUnits(m.getRate()), 360),
+                m.getPaymentCents());
+        assertEquals(m.getPaymentCents() / 100.0, m.getPayment(), 0);
+        assertTrue(m.getSchedule() instanceof FixedPointSchedule);
+    }
+}
@@ -0,0 +1,98 @@
+package cpsc2150.banking.models;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * This class tests Mortgage.quote(): that it agrees with the Mortgage constructor and loanApproved(),
+ * and that once warmed up it allocates nothing.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ */
+public class TestMortgageQuote {
+    private static final int[] SCORES = {0, 450, 500, 550, 600, 650, 700, 750, 800, 850};
+    private static final int[] YEARS = {10, 15, 20, 25, 30};
+    private static final int MEASURE_ATTEMPTS = 10;
+
+    @Test
+    public void testQuoteMatchesMortgage() {
+        MortgageQuote q = new MortgageQuote();
+        for (int score : SCORES) {
+            for (int years : YEARS) {
+                for (double down = 0; down <= 150000; down += 12500) {
+                    ICustomer c = new Customer(900, 85000, score, "Quote Test");
+                    Mortgage m = new Mortgage(300000, down, years, c);
+                    boolean approved = Mortgage.quote(300000, down, years, 85000, 900, score, q);
+
+                    assertEquals(m.loanApproved(), approved);
+                    assertEquals(m.loanApproved(), q.loanApproved());
+                    assertEquals(m.getRate(), q.getRate(), 0);
+                    assertEquals(m.getPayment(), q.getPayment(), 0);
+                    assertEquals(m.getDebtToIncomeRatio(), q.getDebtToIncomeRatio(), 0);
+                    assertEquals(m.getPrincipal(), q.getPrincipal(), 0);
+                    assertEquals(m.getPercentDown(), q.getPercentDown(), 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testQuoteUsesGivenPolicy() {
+        RatePolicy policy = RatePolicy.defaults().withBaseRate(.05);
+        MortgageQuote q = new MortgageQuote();
+        Mortgage.quote(300000, 60000, 30, 120000, 500, 720, policy, q);
+        int tier = policy.tier(30, .2, 720);
+        assertEquals(policy.apr(tier), q.getApr(), 0);
+    }
+
+    @Test
+    public void testQuoteAllocatesNothing() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeAllocationCounting(threads);
+        long thread = Thread.currentThread().getId();
+        MortgageQuote q = new MortgageQuote();
+
+        //Warm up so the quote is compiled before it is measured
+        long approvals = quotes(q, 200000);
+        threads.getThreadAllocatedBytes(thread);
+
+        //A window can still catch a recompilation, depending on what ran earlier in this JVM, so the
+        //measurement is repeated until one window reads zero, up to MEASURE_ATTEMPTS times
+        long fewest = Long.MAX_VALUE;
+        for (int attempt = 0; attempt < MEASURE_ATTEMPTS && fewest != 0; attempt++) {
+            //Before JDK 14 reading the counter allocates its own arrays, so an empty window is measured and subtracted
+            long emptyStart = threads.getThreadAllocatedBytes(thread);
+            long emptyEnd = threads.getThreadAllocatedBytes(thread);
+            long before = threads.getThreadAllocatedBytes(thread);
+            approvals += quotes(q, 1000000);
+            long after = threads.getThreadAllocatedBytes(thread);
+            fewest = Math.min(fewest, (after - before) - (emptyEnd - emptyStart));
+        }
+
+        assertTrue(approvals > 0);
+        assertEquals("fewest bytes allocated by 1000000 quotes in " + MEASURE_ATTEMPTS + " tries", 0, fewest);
+    }
+
+    private static long quotes(MortgageQuote q, int n) {
+        long approvals = 0;
+        for (int i = 0; i < n; i++) {
+            int score = SCORES[i % SCORES.length];
+            int years = YEARS[i % YEARS.length];
+            double down = (i % 16) * 5000;
+            if (Mortgage.quote(200000, down, years, 60000 + (i & 1023) * 50, 400, score, q)) {
+                approvals++;
+            }
+        }
+        return approvals;
+    }
+
+    private static void assumeAllocationCounting(com.sun.management.ThreadMXBean threads) {
+        org.junit.Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+}
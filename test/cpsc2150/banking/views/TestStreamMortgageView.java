@@ -0,0 +1,51 @@
+package cpsc2150.banking.views;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * This class tests that StreamMortgageView reads non-ASCII UTF-8 answers whole: names keep every
+ * character, and a non-ASCII Y/N answer is rejected and the next answer is read.
+ *
+ * @author Connor Love
+ * @since 4/5/2023
+ */
+public class TestStreamMortgageView {
+
+    private static StreamMortgageView view(String session, ByteArrayOutputStream out) {
+        return new StreamMortgageView(new ByteArrayInputStream(session.getBytes(StandardCharsets.UTF_8)),
+                new PrintStream(out, true));
+    }
+
+    @Test
+    public void testNonAsciiName() {
+        StreamMortgageView v = view("José\n90000 500 700\nÉmile Noël \r\n", new ByteArrayOutputStream());
+        assertEquals("José", v.getName());
+        assertEquals(90000, v.getYearlyIncome(), 0);
+        assertEquals(500, v.getMonthlyDebt(), 0);
+        assertEquals(700, v.getCreditScore());
+        assertEquals("Émile Noël", v.getName());
+    }
+
+    @Test
+    public void testNonAsciiYesOrNo() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamMortgageView v = view("Ñ\nN\nÉ ñ\nY\n", out);
+        assertFalse(v.getAnotherMortgage());
+        assertTrue(v.getAnotherCustomer());
+        String printed = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertEquals(3, printed.split("Invalid Input", -1).length - 1);
+    }
+
+    @Test
+    public void testNonAsciiYesOrNoAtEnd() {
+        StreamMortgageView v = view("Y\nÑ\n", new ByteArrayOutputStream());
+        assertTrue(v.getAnotherMortgage());
+        //The stale Y must not be read again; the input ends after the bad answer, which is a no
+        assertFalse(v.getAnotherCustomer());
+    }
+}